@@ -0,0 +1,41 @@
+package com.dmitriy.bookservice.cache;
+
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Evicts second-level cache entries Hibernate cannot invalidate: shared join tables, database cascades, plain SQL
+@Component
+public class EntityCacheEvictor {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void evictCollections(Class<?> ownerClass, String property, Collection<Integer> ownerIds) {
+        String role = ownerClass.getName() + "." + property;
+        List<Integer> ids = new ArrayList<>(ownerIds);
+        AfterCommit.runNowAndAfterCommit(() -> ids.forEach(id -> cache().evictCollectionData(role, id)));
+    }
+
+    public void evictCollections(Class<?> ownerClass, String property) {
+        String role = ownerClass.getName() + "." + property;
+        AfterCommit.runNowAndAfterCommit(() -> cache().evictCollectionData(role));
+    }
+
+    public void evictEntity(Class<?> entityClass, int id) {
+        AfterCommit.runNowAndAfterCommit(() -> cache().evictEntityData(entityClass, id));
+    }
+
+    public void evictEntities(Class<?> entityClass) {
+        AfterCommit.runNowAndAfterCommit(() -> cache().evictEntityData(entityClass));
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
@@ -0,0 +1,197 @@
+package com.dmitriy.bookservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Serialized JSON and its entity tag per (entity, view, id), evicted by a write to any entity embedded in the document
+@Component
+public class JsonCache {
+
+    @Value("${cache.json.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.json.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${cache.json.expire-after-write:600}")
+    private long expireAfterWrite;
+
+    private Cache<Key, Entry> cache;
+
+    private final ConcurrentMap<Key, Set<Key>> dependents = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .executor(Runnable::run)
+                .removalListener((Key key, Entry entry, RemovalCause cause) -> {
+                    if (key != null && entry != null && cause != RemovalCause.REPLACED)
+                        unlink(key, entry.dependencies);
+                })
+                .recordStats()
+                .build();
+    }
+
+    public String get(Class<?> type, String view, int id, Function<Dependencies, String> loader) {
+        if (!enabled)
+            return loader.apply(new Dependencies(type, id));
+
+        Key key = new Key(type, view, id);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null)
+            return cached.json;
+
+        long loadGeneration = generation.get();
+        Dependencies dependencies = new Dependencies(type, id);
+        String json = loader.apply(dependencies);
+
+        link(key, dependencies.keys);
+        cache.put(key, new Entry(json, dependencies.tag, dependencies.keys));
+
+        // An invalidation could miss the document while it was being loaded
+        if (generation.get() != loadGeneration)
+            cache.invalidate(key);
+
+        return json;
+    }
+
+    // Entity tag stored with the cached document, the probe runs only when the document is not cached
+    public String tag(Class<?> type, String view, int id, Supplier<String> probe) {
+        Entry cached = enabled ? cache.getIfPresent(new Key(type, view, id)) : null;
+        if (cached != null && cached.tag != null)
+            return cached.tag;
+
+        return probe.get();
+    }
+
+    public void invalidate(Class<?> type, int id) {
+        Key dependency = Key.entity(type, id);
+        AfterCommit.runNowAndAfterCommit(() -> invalidate(dependency));
+    }
+
+    public void invalidate(Class<?> type, Collection<Integer> ids) {
+        Set<Key> keys = new HashSet<>();
+        ids.forEach(id -> keys.add(Key.entity(type, id)));
+        AfterCommit.runNowAndAfterCommit(() -> keys.forEach(this::invalidate));
+    }
+
+    public void invalidateAll() {
+        AfterCommit.runNowAndAfterCommit(() -> {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private void invalidate(Key dependency) {
+        generation.incrementAndGet();
+
+        Set<Key> keys = dependents.remove(dependency);
+        if (keys != null)
+            cache.invalidateAll(keys);
+    }
+
+    private void link(Key key, Set<Key> dependencies) {
+        for (Key dependency : dependencies) {
+            dependents.compute(dependency, (k, keys) -> {
+                Set<Key> result = keys != null ? keys : new HashSet<>();
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    private void unlink(Key key, Set<Key> dependencies) {
+        for (Key dependency : dependencies) {
+            dependents.computeIfPresent(dependency, (k, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    public static class Dependencies {
+        private final Set<Key> keys = new HashSet<>();
+        private String tag;
+
+        Dependencies(Class<?> type, int id) {
+            add(type, id);
+        }
+
+        public void add(Class<?> type, int id) {
+            keys.add(Key.entity(type, id));
+        }
+
+        // Entity tag of the document read in the same transaction as its entities
+        public void tag(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static class Entry {
+        private final String json;
+        private final String tag;
+        private final Set<Key> dependencies;
+
+        Entry(String json, String tag, Set<Key> dependencies) {
+            this.json = json;
+            this.tag = tag;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class Key {
+        private final String type;
+        private final String view;
+        private final int id;
+
+        Key(Class<?> type, String view, int id) {
+            this.type = type.getSimpleName();
+            this.view = view;
+            this.id = id;
+        }
+
+        static Key entity(Class<?> type, int id) {
+            return new Key(type, "", id);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+
+            Key k = (Key)obj;
+            return id == k.id && type.equals(k.type) && view.equals(k.view);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, view, id);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dmitriy.bookservice.cache;
+
+import com.dmitriy.bookservice.model.ReportJob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Order report jobs per parameters, evicted by order writes within the report date range
+@Component
+public class ReportCache {
+
+    @Value("${cache.report.maximum-size:1000}")
+    private long maximumSize;
+
+    @Value("${cache.report.expire-after-write:600}")
+    private long expireAfterWrite;
+
+    private Cache<Key, ReportJob> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public ReportJob get(Date startDate, Date endDate, Boolean onlyCompleted, Supplier<ReportJob> submit) {
+        return cache.get(new Key(startDate, endDate, onlyCompleted), key -> submit.get());
+    }
+
+    public void remove(ReportJob job) {
+        cache.asMap().remove(new Key(job.getStartDate(), job.getEndDate(), job.getOnlyCompleted()), job);
+    }
+
+    public void invalidate(Date day) {
+        LocalDate date = toLocalDate(day);
+        AfterCommit.runNowAndAfterCommit(() ->
+                cache.asMap().keySet().removeIf(key -> !date.isBefore(key.start) && !date.isAfter(key.end)));
+    }
+
+    public void invalidateAll() {
+        AfterCommit.runNowAndAfterCommit(cache::invalidateAll);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // java.sql.Date does not support toInstant()
+    private static LocalDate toLocalDate(Date date) {
+        return new java.sql.Date(date.getTime()).toLocalDate();
+    }
+
+    private static class Key {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final Boolean onlyCompleted;
+
+        Key(Date start, Date end, Boolean onlyCompleted) {
+            this.start = toLocalDate(start);
+            this.end = toLocalDate(end);
+            this.onlyCompleted = onlyCompleted;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+
+            Key k = (Key)obj;
+            return start.equals(k.start) && end.equals(k.end) && Objects.equals(onlyCompleted, k.onlyCompleted);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, onlyCompleted);
+        }
+    }
+}
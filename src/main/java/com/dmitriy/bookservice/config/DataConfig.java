@@ -1,7 +1,11 @@
 package com.dmitriy.bookservice.config;
 
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -13,9 +17,16 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.core.env.Environment;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.SharedCacheMode;
 import javax.sql.DataSource;
+import java.net.URI;
+import java.util.OptionalLong;
 import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @ComponentScan
@@ -24,15 +35,64 @@ import java.util.Properties;
 @EnableJpaRepositories(basePackages = "com.dmitriy.bookservice.repository")
 public class DataConfig {
 
+    static final String[] ENTITY_CACHE_REGIONS = {
+            "books", "books.authors", "authors", "authors.books",
+            "customers", "customers.orders", "orders", "orders.books"
+    };
+
+    // pgJDBC connection properties, passed to the driver as is
+    static final String[] PGJDBC_PROPERTIES = {
+            "prepareThreshold", "preparedStatementCacheQueries", "preparedStatementCacheSizeMiB",
+            "reWriteBatchedInserts", "defaultRowFetchSize"
+    };
+
+    // Without a replica everything goes to the primary pool. Both pools publish their metrics tagged with the pool name.
     @Bean
-    public DataSource dataSource(Environment env) {
+    public DataSource dataSource(Environment env, ObjectProvider<MeterRegistry> meterRegistry) {
         HikariConfig dataSourceConfig = new HikariConfig();
         dataSourceConfig.setDriverClassName(env.getRequiredProperty("spring.datasource.driver-class-name"));
         dataSourceConfig.setJdbcUrl(env.getRequiredProperty("spring.datasource.url"));
         dataSourceConfig.setUsername(env.getRequiredProperty("spring.datasource.username"));
         dataSourceConfig.setPassword(env.getRequiredProperty("spring.datasource.password"));
+        meterRegistry.ifAvailable(dataSourceConfig::setMetricRegistry);
+
+        if ("org.postgresql.Driver".equals(dataSourceConfig.getDriverClassName())) {
+            for (String name : PGJDBC_PROPERTIES) {
+                String value = env.getProperty("datasource.pgjdbc." + name);
+                if (value != null)
+                    dataSourceConfig.addDataSourceProperty(name, value);
+            }
+        }
+
+        if (!env.getProperty("datasource.replica.enabled", Boolean.class, false))
+            return new HikariDataSource(configurePool(dataSourceConfig, "primary", env));
+
+        HikariConfig replicaConfig = new HikariConfig();
+        dataSourceConfig.copyStateTo(replicaConfig);
+        replicaConfig.setReadOnly(true);
+        replicaConfig.setJdbcUrl(env.getRequiredProperty("datasource.replica.url"));
+        replicaConfig.setUsername(env.getProperty("datasource.replica.username", dataSourceConfig.getUsername()));
+        replicaConfig.setPassword(env.getProperty("datasource.replica.password", dataSourceConfig.getPassword()));
+
+        return new RoutingDataSource(new HikariDataSource(configurePool(dataSourceConfig, "primary", env)),
+                new HikariDataSource(configurePool(replicaConfig, "replica", env)));
+    }
+
+    private static HikariConfig configurePool(HikariConfig config, String pool, Environment env) {
+        config.setPoolName(pool);
+        config.setMaximumPoolSize((int)poolProperty(env, pool, "maximum-pool-size"));
+        config.setMinimumIdle((int)poolProperty(env, pool, "minimum-idle"));
+        config.setConnectionTimeout(poolProperty(env, pool, "connection-timeout"));
+        config.setValidationTimeout(poolProperty(env, pool, "validation-timeout"));
+        config.setIdleTimeout(poolProperty(env, pool, "idle-timeout"));
+        config.setMaxLifetime(poolProperty(env, pool, "max-lifetime"));
+        config.setLeakDetectionThreshold(poolProperty(env, pool, "leak-detection-threshold"));
+        return config;
+    }
 
-        return new HikariDataSource(dataSourceConfig);
+    private static long poolProperty(Environment env, String pool, String name) {
+        Long value = env.getProperty("datasource." + pool + "." + name, Long.class);
+        return value != null ? value : env.getRequiredProperty("datasource.pool." + name, Long.class);
     }
 
     @Bean
@@ -46,12 +106,55 @@ public class DataConfig {
         jpaProperties.put("hibernate.dialect",  env.getRequiredProperty("hibernate.dialect"));
         jpaProperties.put("hibernate.show_sql", env.getRequiredProperty("hibernate.show_sql"));
         jpaProperties.put("hibernate.format_sql", env.getRequiredProperty("hibernate.format_sql"));
+        jpaProperties.put("hibernate.generate_statistics", env.getRequiredProperty("hibernate.generate_statistics"));
+        jpaProperties.put("hibernate.session.events.log", "false");
+        jpaProperties.put("hibernate.default_batch_fetch_size", env.getRequiredProperty("hibernate.default_batch_fetch_size"));
+        jpaProperties.put("hibernate.jdbc.batch_size", env.getRequiredProperty("hibernate.jdbc.batch_size"));
+        jpaProperties.put("hibernate.order_inserts", env.getRequiredProperty("hibernate.order_inserts"));
+        jpaProperties.put("hibernate.order_updates", env.getRequiredProperty("hibernate.order_updates"));
+        jpaProperties.put("hibernate.query.in_clause_parameter_padding", env.getRequiredProperty("hibernate.query.in_clause_parameter_padding"));
+
+        if (env.getProperty("hibernate.cache.use_second_level_cache", Boolean.class, false)) {
+            entityManagerFactoryBean.setSharedCacheMode(SharedCacheMode.ENABLE_SELECTIVE);
+            jpaProperties.put("hibernate.cache.use_second_level_cache", "true");
+            jpaProperties.put("hibernate.cache.region.factory_class", "jcache");
+            jpaProperties.put("hibernate.cache.auto_evict_collection_cache", "true");
+            jpaProperties.put("hibernate.javax.cache.cache_manager", entityCacheManager(env));
+            jpaProperties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        }
 
         entityManagerFactoryBean.setJpaProperties(jpaProperties);
 
         return entityManagerFactoryBean;
     }
 
+    // Hibernate closes the manager together with the session factory, so it is not registered as a bean
+    private CacheManager entityCacheManager(Environment env) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("bookservice:entity-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        for (String region : ENTITY_CACHE_REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setStoreByValue(false);
+            configuration.setStatisticsEnabled(true);
+            configuration.setManagementEnabled(true);
+            configuration.setMaximumSize(OptionalLong.of(entityCacheProperty(env, region, "maximum-size")));
+
+            long expireAfterWrite = entityCacheProperty(env, region, "expire-after-write");
+            if (expireAfterWrite > 0)
+                configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(expireAfterWrite)));
+
+            cacheManager.createCache(region, configuration);
+        }
+
+        return cacheManager;
+    }
+
+    private static long entityCacheProperty(Environment env, String region, String name) {
+        Long value = env.getProperty("cache.entity." + region + "." + name, Long.class);
+        return value != null ? value : env.getRequiredProperty("cache.entity.default." + name, Long.class);
+    }
+
     @Bean
     JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -1,8 +1,10 @@
 package com.dmitriy.bookservice.config;
 
+import com.dmitriy.bookservice.metrics.MeteredObjectMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -12,53 +14,53 @@ public class MapperConfig {
 
     @Bean
     @Primary
-    ObjectMapper defaultMapper() {
-        return new ObjectMapper();
+    ObjectMapper defaultMapper(MeterRegistry meterRegistry) {
+        return new MeteredObjectMapper("default", meterRegistry);
     }
 
     @Bean("mapperWithoutBooksRef")
-    ObjectMapper mapperWithoutBooksRef() {
-        ObjectMapper mapperWithoutBooksRef = new ObjectMapper();
+    ObjectMapper mapperWithoutBooksRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutBooksRef = new MeteredObjectMapper("withoutBooksRef", meterRegistry);
         mapperWithoutBooksRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("books")));
         return mapperWithoutBooksRef;
     }
 
     @Bean("mapperWithoutAuthorsRef")
-    ObjectMapper mapperWithoutAuthorsRef() {
-        ObjectMapper mapperWithoutAuthorsRef = new ObjectMapper();
+    ObjectMapper mapperWithoutAuthorsRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutAuthorsRef = new MeteredObjectMapper("withoutAuthorsRef", meterRegistry);
         mapperWithoutAuthorsRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("authors")));
         return mapperWithoutAuthorsRef;
     }
 
     @Bean("mapperWithoutOrdersRef")
-    ObjectMapper mapperWithoutOrdersRef() {
-        ObjectMapper mapperWithoutAuthorsRef = new ObjectMapper();
+    ObjectMapper mapperWithoutOrdersRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutAuthorsRef = new MeteredObjectMapper("withoutOrdersRef", meterRegistry);
         mapperWithoutAuthorsRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("orders")));
         return mapperWithoutAuthorsRef;
     }
 
     @Bean("mapperWithoutBooksAndOrdersRef")
-    ObjectMapper mapperWithoutBooksAndOrdersRef() {
-        ObjectMapper mapperWithoutBooksAndOrdersRef = new ObjectMapper();
+    ObjectMapper mapperWithoutBooksAndOrdersRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutBooksAndOrdersRef = new MeteredObjectMapper("withoutBooksAndOrdersRef", meterRegistry);
         mapperWithoutBooksAndOrdersRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("books", "orders")));
         return mapperWithoutBooksAndOrdersRef;
     }
 
     @Bean("mapperWithoutAuthorsAndOrdersRef")
-    ObjectMapper mapperWithoutAuthorsAndOrdersRef() {
-        ObjectMapper mapperWithoutAuthorsAndOrdersRef = new ObjectMapper();
+    ObjectMapper mapperWithoutAuthorsAndOrdersRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutAuthorsAndOrdersRef = new MeteredObjectMapper("withoutAuthorsAndOrdersRef", meterRegistry);
         mapperWithoutAuthorsAndOrdersRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("authors", "orders")));
         return mapperWithoutAuthorsAndOrdersRef;
     }
 
     @Bean("mapperWithoutAuthorsAndCustomerRef")
-    ObjectMapper mapperWithoutAuthorsAndCustomerRef() {
-        ObjectMapper mapperWithoutAuthorsAndCustomerRef = new ObjectMapper();
+    ObjectMapper mapperWithoutAuthorsAndCustomerRef(MeterRegistry meterRegistry) {
+        ObjectMapper mapperWithoutAuthorsAndCustomerRef = new MeteredObjectMapper("withoutAuthorsAndCustomerRef", meterRegistry);
         mapperWithoutAuthorsAndCustomerRef.setFilterProvider(new SimpleFilterProvider().addFilter("nestedFilter",
                 SimpleBeanPropertyFilter.serializeAllExcept("authors", "customer")));
         return mapperWithoutAuthorsAndCustomerRef;
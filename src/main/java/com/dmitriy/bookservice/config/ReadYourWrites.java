@@ -0,0 +1,77 @@
+package com.dmitriy.bookservice.config;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Keeps the reads of a client on the primary for a while after its write, marked by a cookie
+@Component
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadYourWrites extends OncePerRequestFilter {
+
+    static final String COOKIE = "bookservice-primary";
+
+    private static final ThreadLocal<Request> requests = new ThreadLocal<>();
+
+    @Value("${datasource.replica.read-your-writes:5}")
+    private int readYourWrites;
+
+    static boolean isPrimaryRequired() {
+        Request request = requests.get();
+        return request != null && request.primaryRequired;
+    }
+
+    // Called after the commit of every transaction that changed data, outside of a filtered request does nothing
+    static void written() {
+        Request request = requests.get();
+        if (request == null || request.primaryRequired && request.marked)
+            return;
+
+        request.primaryRequired = true;
+        if (request.seconds > 0 && !request.response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, "1");
+            cookie.setMaxAge(request.seconds);
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            request.response.addCookie(cookie);
+            request.marked = true;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Request current = new Request(response, readYourWrites);
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies())
+                current.primaryRequired |= cookie.getName().equals(COOKIE);
+        }
+
+        requests.set(current);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            requests.remove();
+        }
+    }
+
+    private static class Request {
+        private final HttpServletResponse response;
+        private final int seconds;
+        private boolean primaryRequired;
+        private boolean marked;
+
+        Request(HttpServletResponse response, int seconds) {
+            this.response = response;
+            this.seconds = seconds;
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package com.dmitriy.bookservice.controllers;
 
 import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.BatchResult;
 import com.dmitriy.bookservice.model.Identificator;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.projection.NameSuggestion;
 import com.dmitriy.bookservice.service.AuthorService;
 import io.swagger.annotations.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Api(description = "Author REST APIs", tags = "Authors")
 @RestController
@@ -15,12 +25,27 @@ public class AuthorController {
     @Autowired
     private AuthorService authorService;
 
-    @ApiOperation(value = "Get author by specified ID", response = Author.class, tags = "Get")
+    @ApiOperation(value = "Get author by specified ID", notes = "Response has an ETag, a request with the same If-None-Match is answered with 304",
+            response = Author.class, tags = "Get")
     @GetMapping(value = "/getAuthorById", produces = "application/json; charset=UTF-8")
     public String getAuthorById(
             @ApiParam(name = "id", required = true, value = "Author ID", example = "1")
-            @RequestParam(value = "id") int id) {
-        return authorService.findById(id);
+            @RequestParam(value = "id") int id,
+            @ApiIgnore WebRequest request) {
+        String author = authorService.findById(id);
+        if (request.checkNotModified(authorService.versionTag(id)))
+            return null;
+
+        return author;
+    }
+
+    @ApiOperation(value = "Get authors by specified IDs", notes = "Result is returned as {\"items\": [...], \"missingIds\": [...]}, " +
+            "items are in the format of \"/api/getAuthorById\"", response = Author.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getAuthorsByIds", produces = "application/json; charset=UTF-8")
+    public String getAuthorsByIds(
+            @ApiParam(name = "ids", required = true, value = "Comma-separated author IDs, up to " + BatchResult.MAX_IDS, example = "1,2,3")
+            @RequestParam(value = "ids") List<Integer> ids) {
+        return authorService.findByIds(ids);
     }
 
     @ApiOperation(value = "Get list of authors by specified full name", response = Author.class, responseContainer = "List", tags = "Get")
@@ -31,10 +56,38 @@ public class AuthorController {
         return authorService.findByFullName(fullName);
     }
 
-    @ApiOperation(value = "Get list of all authors", response = Author.class, responseContainer = "List", tags = "Get")
+    @ApiOperation(value = "Get list of all authors or, if \"limit\" is specified, a page of authors ordered by ID",
+            notes = "Page is returned as {\"items\": [...], \"nextAfterId\": cursor}. " +
+                    "Response has an ETag of the whole list, a request with the same If-None-Match is answered with 304", response = Author.class, responseContainer = "List", tags = "Get")
     @GetMapping(value = "/getAuthors", produces = "application/json; charset=UTF-8")
-    public String getAuthors() {
-        return authorService.findAll();
+    public String getAuthors(
+            @ApiParam(name = "afterId", value = "Return authors with ID greater than specified (\"nextAfterId\" of the previous page)", example = "0")
+            @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @ApiIgnore WebRequest request) {
+        if (request.checkNotModified(authorService.listVersionTag()))
+            return null;
+
+        return limit == null ? authorService.findAll() : authorService.findPage(afterId, limit);
+    }
+
+    @ApiOperation(value = "Suggest authors whose full name has a word starting with the specified prefix",
+            notes = "Served from an in-memory prefix index, case is ignored", response = NameSuggestion.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/suggestAuthors", produces = "application/json; charset=UTF-8")
+    public String suggestAuthors(
+            @ApiParam(name = "prefix", required = true, value = "Beginning of a word of the full name", example = "knu")
+            @RequestParam(value = "prefix") String prefix,
+            @ApiParam(name = "limit", value = "Maximum number of suggestions, up to " + KeysetPage.MAX_LIMIT, example = "10")
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return authorService.suggest(prefix, limit);
+    }
+
+    @ApiOperation(value = "Stream list of all authors", notes = "Authors are read with a database cursor and written to the response one by one",
+            response = Author.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getAuthors", params = "stream=true", produces = "application/json; charset=UTF-8")
+    public StreamingResponseBody streamAuthors() {
+        return authorService::streamAll;
     }
 
     @ApiOperation(value = "Add new author", response = Identificator.class, tags = "Create")
@@ -50,14 +103,17 @@ public class AuthorController {
         return new Identificator(authorService.add(author).getId());
     }
 
-    @ApiOperation(value = "Update author", tags = "Update")
+    @ApiOperation(value = "Update author", notes = "If-Match with the ETag of \"/api/getAuthorById\" makes the update conditional: " +
+            "if the author was changed since it was read, nothing is written and 409 is returned", tags = "Update")
     @PostMapping(value = "/updateAuthor", produces = "application/json; charset=UTF-8")
     public void updateAuthor(
             @ApiParam(name = "author", required = true,
                     value = "JSON data of the author, identified by existing author ID. Specified book IDs must exist, " +
                             "field \"authors\" of book must be null or absent, other book fields are ignored.")
-            @RequestBody Author author) {
-        authorService.update(author);
+            @RequestBody Author author,
+            @ApiParam(name = "If-Match", value = "ETag of the author the update is based on", example = "\"1-2144df1c\"")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        authorService.update(author, ifMatch);
     }
 
     @ApiOperation(value = "Delete author", tags = "Delete")
@@ -67,4 +123,39 @@ public class AuthorController {
             @RequestParam(value = "id") int id) {
         authorService.delete(id);
     }
+
+    @ApiOperation(value = "Add list of new authors", notes = "Request body is read as a stream and written with JDBC batches",
+            response = Identificator.class, responseContainer = "List", tags = "Create")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "authors", required = true, paramType = "body", dataType = "Author", allowMultiple = true,
+                value = "JSON array of the new authors in the format of \"/api/addAuthor\"")
+    })
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "Authors added, return IDs of the new authors in the order of the request")
+    })
+    @PostMapping(value = "/addAuthors", produces = "application/json; charset=UTF-8")
+    public List<Identificator> addAuthors(@ApiIgnore InputStream body) {
+        return authorService.addAll(body).stream().map(Identificator::new).collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Update list of authors", notes = "Request body is read as a stream and written with JDBC batches", tags = "Update")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "authors", required = true, paramType = "body", dataType = "Author", allowMultiple = true,
+                value = "JSON array of the authors in the format of \"/api/updateAuthor\", every author with the \"version\" " +
+                        "it is based on, the number before the dash of its entity tag. A changed author fails the update with 409")
+    })
+    @PostMapping(value = "/updateAuthors", produces = "application/json; charset=UTF-8")
+    public void updateAuthors(@ApiIgnore InputStream body) {
+        authorService.updateAll(body);
+    }
+
+    @ApiOperation(value = "Delete list of authors", tags = "Delete")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "ids", required = true, paramType = "body", dataType = "int", allowMultiple = true,
+                value = "JSON array of IDs of existing authors", example = "[1, 2, 3]")
+    })
+    @PostMapping(value = "/deleteAuthors", produces = "application/json; charset=UTF-8")
+    public void deleteAuthors(@ApiIgnore InputStream body) {
+        authorService.deleteAll(body);
+    }
 }
@@ -1,11 +1,23 @@
 package com.dmitriy.bookservice.controllers;
 
+import com.dmitriy.bookservice.model.BatchResult;
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.BookFilter;
 import com.dmitriy.bookservice.model.Identificator;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.projection.BookSearchHit;
+import com.dmitriy.bookservice.projection.NameSuggestion;
 import com.dmitriy.bookservice.service.BookService;
 import io.swagger.annotations.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Api(description = "Book REST APIs", tags = "Books")
 @RestController
@@ -15,12 +27,27 @@ public class BookController {
     @Autowired
     private BookService bookService;
 
-    @ApiOperation(value = "Get book by specified ID", response = Book.class, tags = "Get")
+    @ApiOperation(value = "Get book by specified ID", notes = "Response has an ETag, a request with the same If-None-Match is answered with 304",
+            response = Book.class, tags = "Get")
     @GetMapping(value = "/getBookById", produces = "application/json; charset=UTF-8")
     public String getBookById(
             @ApiParam(name = "id", required = true, value = "Book ID", example = "1")
-            @RequestParam(value = "id") int id) {
-        return bookService.findById(id);
+            @RequestParam(value = "id") int id,
+            @ApiIgnore WebRequest request) {
+        String book = bookService.findById(id);
+        if (request.checkNotModified(bookService.versionTag(id)))
+            return null;
+
+        return book;
+    }
+
+    @ApiOperation(value = "Get books by specified IDs", notes = "Result is returned as {\"items\": [...], \"missingIds\": [...]}, " +
+            "items are in the format of \"/api/getBookById\"", response = Book.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getBooksByIds", produces = "application/json; charset=UTF-8")
+    public String getBooksByIds(
+            @ApiParam(name = "ids", required = true, value = "Comma-separated book IDs, up to " + BatchResult.MAX_IDS, example = "1,2,3")
+            @RequestParam(value = "ids") List<Integer> ids) {
+        return bookService.findByIds(ids);
     }
 
     @ApiOperation(value = "Get list of books by specified name", response = Book.class, responseContainer = "List", tags = "Get")
@@ -31,10 +58,75 @@ public class BookController {
         return bookService.findByName(name);
     }
 
-    @ApiOperation(value = "Get list of all books", response = Book.class, responseContainer = "List", tags = "Get")
+    @ApiOperation(value = "Get list of all books or, if \"limit\" is specified, a page of books ordered by ID",
+            notes = "Page is returned as {\"items\": [...], \"nextAfterId\": cursor}. " +
+                    "Response has an ETag of the whole list, a request with the same If-None-Match is answered with 304", response = Book.class, responseContainer = "List", tags = "Get")
     @GetMapping(value = "/getBooks", produces = "application/json; charset=UTF-8")
-    public String getBooks() {
-        return bookService.findAll();
+    public String getBooks(
+            @ApiParam(name = "afterId", value = "Return books with ID greater than specified (\"nextAfterId\" of the previous page)", example = "0")
+            @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @ApiIgnore WebRequest request) {
+        if (request.checkNotModified(bookService.listVersionTag()))
+            return null;
+
+        return limit == null ? bookService.findAll() : bookService.findPage(afterId, limit);
+    }
+
+    @ApiOperation(value = "Get a page of books matching all specified criteria",
+            notes = "Page is returned as {\"items\": [...], \"nextOffset\": offset}", response = Book.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/filterBooks", produces = "application/json; charset=UTF-8")
+    public String filterBooks(
+            @ApiParam(name = "yearFrom", value = "Minimum publication year", example = "1990")
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @ApiParam(name = "yearTo", value = "Maximum publication year", example = "2000")
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @ApiParam(name = "authorId", value = "ID of an author of the book", example = "1")
+            @RequestParam(value = "authorId", required = false) Integer authorId,
+            @ApiParam(name = "namePrefix", value = "Beginning of the book name, case-sensitive", example = "The Art")
+            @RequestParam(value = "namePrefix", required = false) String namePrefix,
+            @ApiParam(name = "sort", value = "Comma-separated sort properties (id, name, publicationYear), \"-\" for descending order",
+                    example = "-publicationYear,name")
+            @RequestParam(value = "sort", required = false) String sort,
+            @ApiParam(name = "offset", value = "Number of books to skip (\"nextOffset\" of the previous page)", example = "0")
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "20")
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return bookService.filter(new BookFilter(yearFrom, yearTo, authorId, namePrefix, sort), offset, limit);
+    }
+
+    @ApiOperation(value = "Full-text search of books by name and annotation",
+            notes = "Every word of the query must match. Page is returned as {\"items\": [...], \"nextOffset\": offset}, items are ordered by rank " +
+                    "and contain the name and an annotation fragment with matched words wrapped in <b></b>",
+            response = BookSearchHit.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/searchBooks", produces = "application/json; charset=UTF-8")
+    public String searchBooks(
+            @ApiParam(name = "query", required = true, value = "Search words", example = "computer programming")
+            @RequestParam(value = "query") String query,
+            @ApiParam(name = "offset", value = "Number of hits to skip (\"nextOffset\" of the previous page)", example = "0")
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "20")
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return bookService.search(query, offset, limit);
+    }
+
+    @ApiOperation(value = "Suggest books whose name has a word starting with the specified prefix",
+            notes = "Served from an in-memory prefix index, case is ignored", response = NameSuggestion.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/suggestBooks", produces = "application/json; charset=UTF-8")
+    public String suggestBooks(
+            @ApiParam(name = "prefix", required = true, value = "Beginning of a word of the name", example = "art of")
+            @RequestParam(value = "prefix") String prefix,
+            @ApiParam(name = "limit", value = "Maximum number of suggestions, up to " + KeysetPage.MAX_LIMIT, example = "10")
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return bookService.suggest(prefix, limit);
+    }
+
+    @ApiOperation(value = "Stream list of all books", notes = "Books are read with a database cursor and written to the response one by one",
+            response = Book.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getBooks", params = "stream=true", produces = "application/json; charset=UTF-8")
+    public StreamingResponseBody streamBooks() {
+        return bookService::streamAll;
     }
 
     @ApiOperation(value = "Add new book", response = Identificator.class, tags = "Create")
@@ -50,14 +142,17 @@ public class BookController {
         return new Identificator(bookService.add(book).getId());
     }
 
-    @ApiOperation(value = "Update book", tags = "Update")
+    @ApiOperation(value = "Update book", notes = "If-Match with the ETag of \"/api/getBookById\" makes the update conditional: " +
+            "if the book was changed since it was read, nothing is written and 409 is returned", tags = "Update")
     @PostMapping(value = "/updateBook", produces = "application/json; charset=UTF-8")
     public void updateBook(
             @ApiParam(name = "book", required = true,
                     value = "JSON data of the book, identified by existing book ID. Specified author IDs must exist, " +
                             "field \"books\" of author must be null or absent, other author fields are ignored.")
-            @RequestBody Book book) {
-        bookService.update(book);
+            @RequestBody Book book,
+            @ApiParam(name = "If-Match", value = "ETag of the book the update is based on", example = "\"1-2144df1c\"")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        bookService.update(book, ifMatch);
     }
 
     @ApiOperation(value = "Delete book", tags = "Delete")
@@ -67,4 +162,39 @@ public class BookController {
             @RequestParam(value = "id") int id) {
         bookService.delete(id);
     }
+
+    @ApiOperation(value = "Add list of new books", notes = "Request body is read as a stream and written with JDBC batches",
+            response = Identificator.class, responseContainer = "List", tags = "Create")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "books", required = true, paramType = "body", dataType = "Book", allowMultiple = true,
+                value = "JSON array of the new books in the format of \"/api/addBook\"")
+    })
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "Books added, return IDs of the new books in the order of the request")
+    })
+    @PostMapping(value = "/addBooks", produces = "application/json; charset=UTF-8")
+    public List<Identificator> addBooks(@ApiIgnore InputStream body) {
+        return bookService.addAll(body).stream().map(Identificator::new).collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Update list of books", notes = "Request body is read as a stream and written with JDBC batches", tags = "Update")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "books", required = true, paramType = "body", dataType = "Book", allowMultiple = true,
+                value = "JSON array of the books in the format of \"/api/updateBook\", every book with the \"version\" " +
+                        "it is based on, the number before the dash of its entity tag. A changed book fails the update with 409")
+    })
+    @PostMapping(value = "/updateBooks", produces = "application/json; charset=UTF-8")
+    public void updateBooks(@ApiIgnore InputStream body) {
+        bookService.updateAll(body);
+    }
+
+    @ApiOperation(value = "Delete list of books", tags = "Delete")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "ids", required = true, paramType = "body", dataType = "int", allowMultiple = true,
+                value = "JSON array of IDs of existing books", example = "[1, 2, 3]")
+    })
+    @PostMapping(value = "/deleteBooks", produces = "application/json; charset=UTF-8")
+    public void deleteBooks(@ApiIgnore InputStream body) {
+        bookService.deleteAll(body);
+    }
 }
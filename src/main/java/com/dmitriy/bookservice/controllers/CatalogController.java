@@ -0,0 +1,37 @@
+package com.dmitriy.bookservice.controllers;
+
+import com.dmitriy.bookservice.model.CatalogImportReport;
+import com.dmitriy.bookservice.service.CatalogImportService;
+import io.swagger.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import springfox.documentation.annotations.ApiIgnore;
+
+import java.io.InputStream;
+
+@Api(description = "Catalog REST APIs", tags = "Catalog")
+@RestController
+@RequestMapping("/api")
+public class CatalogController {
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    @ApiOperation(value = "Import catalog of books and authors",
+            notes = "Books are matched by name and publication year, authors by full name and birth year. " +
+                    "New books, authors and links are added, annotations of existing books are updated.",
+            response = CatalogImportReport.class, tags = "Create")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "catalog", required = true, paramType = "body", dataType = "string",
+                value = "csv: header \"name,publicationYear,annotation,authorFullName,authorBirthYear\" and one line per book author " +
+                        "(author columns are empty for a book without authors); ndjson: one book per line " +
+                        "{\"name\", \"publicationYear\", \"annotation\", \"authors\": [{\"fullName\", \"birthYear\"}]}")
+    })
+    @PostMapping(value = "/importCatalog", produces = "application/json; charset=UTF-8")
+    public CatalogImportReport importCatalog(
+            @ApiParam(name = "format", value = "Catalog format: csv or ndjson", example = "csv")
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @ApiIgnore InputStream body) {
+        return catalogImportService.importCatalog(body, format);
+    }
+}
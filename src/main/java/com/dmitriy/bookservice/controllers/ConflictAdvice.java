@@ -0,0 +1,26 @@
+package com.dmitriy.bookservice.controllers;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.persistence.OptimisticLockException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// A write based on a stale version of the entity is reported as 409 with the standard error body
+@ControllerAdvice
+public class ConflictAdvice {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public void conflict(OptimisticLockingFailureException ex, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.CONFLICT.value(), ex.getMessage());
+    }
+
+    // Versioned UPDATE of a bulk write that matched no row, flushed outside of the repository exception translation
+    @ExceptionHandler(OptimisticLockException.class)
+    public void conflict(OptimisticLockException ex, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.CONFLICT.value(), ex.getMessage());
+    }
+}
@@ -1,15 +1,29 @@
 package com.dmitriy.bookservice.controllers;
 
+import com.dmitriy.bookservice.model.BatchResult;
 import com.dmitriy.bookservice.model.Customer;
 import com.dmitriy.bookservice.model.Identificator;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.model.ReportJob;
+import com.dmitriy.bookservice.projection.CustomerSearchHit;
+import com.dmitriy.bookservice.projection.OrderReportRow;
 import com.dmitriy.bookservice.service.CustomerService;
+import com.dmitriy.bookservice.service.ReportJobService;
 import io.swagger.annotations.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
 
+import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Api(description = "Customer REST APIs", tags = "Customers")
 @RestController
@@ -19,12 +33,30 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
-    @ApiOperation(value = "Get customer by specified ID", response = Customer.class, tags = "Get")
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @ApiOperation(value = "Get customer by specified ID", notes = "Response has an ETag, a request with the same If-None-Match is answered with 304",
+            response = Customer.class, tags = "Get")
     @GetMapping(value = "/getCustomerById", produces = "application/json; charset=UTF-8")
     public String getCustomerById(
             @ApiParam(name = "id", required = true, value = "Customer ID", example = "1")
-            @RequestParam(value = "id") int id) {
-        return customerService.findById(id);
+            @RequestParam(value = "id") int id,
+            @ApiIgnore WebRequest request) {
+        String customer = customerService.findById(id);
+        if (request.checkNotModified(customerService.versionTag(id)))
+            return null;
+
+        return customer;
+    }
+
+    @ApiOperation(value = "Get customers by specified IDs", notes = "Result is returned as {\"items\": [...], \"missingIds\": [...]}, " +
+            "items are in the format of \"/api/getCustomerById\"", response = Customer.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getCustomersByIds", produces = "application/json; charset=UTF-8")
+    public String getCustomersByIds(
+            @ApiParam(name = "ids", required = true, value = "Comma-separated customer IDs, up to " + BatchResult.MAX_IDS, example = "1,2,3")
+            @RequestParam(value = "ids") List<Integer> ids) {
+        return customerService.findByIds(ids);
     }
 
     @ApiOperation(value = "Get list of customers by specified name", response = Customer.class, responseContainer = "List", tags = "Get")
@@ -35,10 +67,39 @@ public class CustomerController {
         return customerService.findByName(name);
     }
 
-    @ApiOperation(value = "Get list of all customers", response = Customer.class, responseContainer = "List", tags = "Get")
+    @ApiOperation(value = "Search customers by name with typos and swapped words",
+            notes = "Customers are ranked by trigram similarity of the name, the most similar first",
+            response = CustomerSearchHit.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/searchCustomersByName", produces = "application/json; charset=UTF-8")
+    public String searchCustomersByName(
+            @ApiParam(name = "name", required = true, value = "Customer name, possibly misspelled", example = "Ivan Ivonov")
+            @RequestParam(value = "name") String name,
+            @ApiParam(name = "limit", value = "Maximum number of customers, up to " + KeysetPage.MAX_LIMIT, example = "20")
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return customerService.search(name, limit);
+    }
+
+    @ApiOperation(value = "Get list of all customers or, if \"limit\" is specified, a page of customers ordered by ID",
+            notes = "Page is returned as {\"items\": [...], \"nextAfterId\": cursor}. " +
+                    "Response has an ETag of the whole list, a request with the same If-None-Match is answered with 304", response = Customer.class, responseContainer = "List", tags = "Get")
     @GetMapping(value = "/getCustomers", produces = "application/json; charset=UTF-8")
-    public String getCustomers() {
-        return customerService.findAll();
+    public String getCustomers(
+            @ApiParam(name = "afterId", value = "Return customers with ID greater than specified (\"nextAfterId\" of the previous page)", example = "0")
+            @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @ApiIgnore WebRequest request) {
+        if (request.checkNotModified(customerService.listVersionTag()))
+            return null;
+
+        return limit == null ? customerService.findAll() : customerService.findPage(afterId, limit);
+    }
+
+    @ApiOperation(value = "Stream list of all customers", notes = "Customers are read with a database cursor and written to the response one by one",
+            response = Customer.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getCustomers", params = "stream=true", produces = "application/json; charset=UTF-8")
+    public StreamingResponseBody streamCustomers() {
+        return customerService::streamAll;
     }
 
     @ApiOperation(value = "Add new customer", response = Identificator.class, tags = "Create")
@@ -53,13 +114,16 @@ public class CustomerController {
         return new Identificator(customerService.add(customer).getId());
     }
 
-    @ApiOperation(value = "Update customer", tags = "Update")
+    @ApiOperation(value = "Update customer", notes = "If-Match with the ETag of \"/api/getCustomerById\" makes the update conditional: " +
+            "if the customer was changed since it was read, nothing is written and 409 is returned", tags = "Update")
     @PostMapping(value = "/updateCustomer", produces = "application/json; charset=UTF-8")
     public void updateCustomer(
             @ApiParam(name = "customer", required = true,
                     value = "JSON data of the customer, identified by existing customer ID")
-            @RequestBody Customer customer) {
-        customerService.update(customer);
+            @RequestBody Customer customer,
+            @ApiParam(name = "If-Match", value = "ETag of the customer the update is based on", example = "\"1-2144df1c\"")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        customerService.update(customer, ifMatch);
     }
 
     @ApiOperation(value = "Delete customer", tags = "Delete")
@@ -70,26 +134,107 @@ public class CustomerController {
         customerService.delete(id);
     }
 
+    @ApiOperation(value = "Add list of new customers", notes = "Request body is read as a stream and written with JDBC batches",
+            response = Identificator.class, responseContainer = "List", tags = "Create")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "customers", required = true, paramType = "body", dataType = "Customer", allowMultiple = true,
+                value = "JSON array of the new customers in the format of \"/api/addCustomer\"")
+    })
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "Customers added, return IDs of the new customers in the order of the request")
+    })
+    @PostMapping(value = "/addCustomers", produces = "application/json; charset=UTF-8")
+    public List<Identificator> addCustomers(@ApiIgnore InputStream body) {
+        return customerService.addAll(body).stream().map(Identificator::new).collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Update list of customers", notes = "Request body is read as a stream and written with JDBC batches", tags = "Update")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "customers", required = true, paramType = "body", dataType = "Customer", allowMultiple = true,
+                value = "JSON array of the customers in the format of \"/api/updateCustomer\", every customer with the \"version\" " +
+                        "it is based on, the number before the dash of its entity tag. A changed customer fails the update with 409")
+    })
+    @PostMapping(value = "/updateCustomers", produces = "application/json; charset=UTF-8")
+    public void updateCustomers(@ApiIgnore InputStream body) {
+        customerService.updateAll(body);
+    }
+
+    @ApiOperation(value = "Delete list of customers", tags = "Delete")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "ids", required = true, paramType = "body", dataType = "int", allowMultiple = true,
+                value = "JSON array of IDs of existing customers", example = "[1, 2, 3]")
+    })
+    @PostMapping(value = "/deleteCustomers", produces = "application/json; charset=UTF-8")
+    public void deleteCustomers(@ApiIgnore InputStream body) {
+        customerService.deleteAll(body);
+    }
+
     // Generate report
-    @ApiOperation(value = "Generate a report on books ordered by customers for a specified period", tags = "Report")
-    @GetMapping(value = "/generateOrderReport", produces = "application/json; charset=UTF-8")
-    public Iterable<Object[]> generateOrderReport(
+    @ApiOperation(value = "Generate a report on books ordered by customers for a specified period",
+            notes = "Rows are read with a database cursor and streamed as NDJSON (one JSON object per line) or CSV with a header. " +
+                    "Row fields are name, phone, bookCount and, when onlyCompleted is false, completed - whether all orders are completed.",
+            response = OrderReportRow.class, responseContainer = "List", tags = "Report")
+    @GetMapping(value = "/generateOrderReport", produces = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<StreamingResponseBody> generateOrderReport(
+            @ApiParam(name = "startDate", required = true, value = "Start date", example = "13.05.2020")
+            @RequestParam(value = "startDate") String startDate,
+            @ApiParam(name = "endDate", required = true, value = "End date", example = "13.05.2020")
+            @RequestParam(value = "endDate") String endDate,
+            @ApiParam(name = "onlyCompleted", value = "Include only completed orders", example = "true")
+            @RequestParam(value = "onlyCompleted", required = false) Boolean onlyCompleted,
+            @ApiParam(name = "format", value = "Report format", allowableValues = "ndjson, csv", example = "ndjson")
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        Date start = parseDate(startDate);
+        Date end = parseDate(endDate);
+
+        // Checked before the response is committed, the body is written asynchronously
+        if (!format.equals("ndjson") && !format.equals("csv"))
+            throw new IllegalArgumentException("Unknown report format \"" + format + "\", expected ndjson or csv");
+
+        if (start.after(end))
+            throw new IllegalArgumentException("Start date of the report must not be after end date");
+
+        MediaType contentType = format.equals("csv") ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(out -> customerService.streamReportOrders(start, end, onlyCompleted, format, out));
+    }
+
+    @ApiOperation(value = "Submit a job generating the report on books ordered by customers for a specified period",
+            notes = "A job with the same parameters is shared while its result is cached", response = ReportJob.class, tags = "Report")
+    @PostMapping(value = "/submitOrderReport", produces = "application/json; charset=UTF-8")
+    public ReportJob submitOrderReport(
             @ApiParam(name = "startDate", required = true, value = "Start date", example = "13.05.2020")
             @RequestParam(value = "startDate") String startDate,
             @ApiParam(name = "endDate", required = true, value = "End date", example = "13.05.2020")
             @RequestParam(value = "endDate") String endDate,
             @ApiParam(name = "onlyCompleted", value = "Include only completed orders", example = "true")
             @RequestParam(value = "onlyCompleted", required = false) Boolean onlyCompleted) {
+        return reportJobService.submit(parseDate(startDate), parseDate(endDate), onlyCompleted);
+    }
 
-        SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
-        Date start, end;
+    @ApiOperation(value = "Get status of the report job", response = ReportJob.class, tags = "Report")
+    @GetMapping(value = "/getOrderReportJob", produces = "application/json; charset=UTF-8")
+    public ReportJob getOrderReportJob(
+            @ApiParam(name = "id", required = true, value = "ID of the report job")
+            @RequestParam(value = "id") String id) {
+        return reportJobService.findById(id);
+    }
+
+    @ApiOperation(value = "Get result of the finished report job", notes = "Rows are in the format of \"/api/generateOrderReport\"",
+            response = OrderReportRow.class, responseContainer = "List", tags = "Report")
+    @GetMapping(value = "/getOrderReportResult", produces = "application/json; charset=UTF-8")
+    public List<OrderReportRow> getOrderReportResult(
+            @ApiParam(name = "id", required = true, value = "ID of the report job")
+            @RequestParam(value = "id") String id) {
+        return reportJobService.findResultById(id);
+    }
+
+    private static Date parseDate(String date) {
         try {
-            start = format.parse(startDate);
-            end = format.parse(endDate);
+            return new SimpleDateFormat("dd.MM.yyyy").parse(date);
         } catch (ParseException ex) {
             throw new IllegalStateException("Failed parse specified date: " + ex.getMessage());
         }
-
-        return customerService.reportOrders(start, end, onlyCompleted);
     }
 }
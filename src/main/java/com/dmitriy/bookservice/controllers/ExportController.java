@@ -0,0 +1,42 @@
+package com.dmitriy.bookservice.controllers;
+
+import com.dmitriy.bookservice.service.ExportService;
+import io.swagger.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@Api(description = "Export REST APIs", tags = "Export")
+@RestController
+@RequestMapping("/api")
+public class ExportController {
+
+    @Autowired
+    private ExportService exportService;
+
+    @ApiOperation(value = "Export table",
+            notes = "Table rows are copied to the response as they are read from the database. " +
+                    "Binary format is the PostgreSQL COPY binary format.",
+            tags = "Get")
+    @GetMapping(value = "/exportTable", produces = {"text/csv", "application/octet-stream"})
+    public ResponseEntity<StreamingResponseBody> exportTable(
+            @ApiParam(name = "table", value = "Table name", required = true,
+                    allowableValues = "books, authors, books_authors, customers, orders, orders_books", example = "orders")
+            @RequestParam(value = "table") String table,
+            @ApiParam(name = "format", value = "Export format", allowableValues = "csv, binary", example = "csv")
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @ApiParam(name = "from", value = "First order creation date (orders and orders_books only)", example = "01.05.2020")
+            @RequestParam(value = "from", required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate from,
+            @ApiParam(name = "to", value = "Last order creation date (orders and orders_books only)", example = "31.05.2020")
+            @RequestParam(value = "to", required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate to) {
+        MediaType contentType = format.equals("binary") ? MediaType.APPLICATION_OCTET_STREAM : new MediaType("text", "csv");
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(out -> exportService.export(table, format, from, to, out));
+    }
+}
@@ -1,11 +1,24 @@
 package com.dmitriy.bookservice.controllers;
 
+import com.dmitriy.bookservice.model.BatchResult;
 import com.dmitriy.bookservice.model.Identificator;
+import com.dmitriy.bookservice.model.KeysetPage;
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.model.OrderCompletionReport;
+import com.dmitriy.bookservice.model.OrderFilter;
 import com.dmitriy.bookservice.service.OrderService;
 import io.swagger.annotations.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springfox.documentation.annotations.ApiIgnore;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Api(description = "Order REST APIs", tags = "Orders")
 @RestController
@@ -15,18 +28,72 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
-    @ApiOperation(value = "Get order by specified ID", response = Order.class, tags = "Get")
+    @ApiOperation(value = "Get order by specified ID", notes = "Response has an ETag, a request with the same If-None-Match is answered with 304",
+            response = Order.class, tags = "Get")
     @GetMapping(value = "/getOrderById", produces = "application/json; charset=UTF-8")
     public String getOrderById(
             @ApiParam(name = "id", required = true, value = "Order ID", example = "1")
-            @RequestParam(value = "id") int id) {
-        return orderService.findById(id);
+            @RequestParam(value = "id") int id,
+            @ApiIgnore WebRequest request) {
+        String order = orderService.findById(id);
+        if (request.checkNotModified(orderService.versionTag(id)))
+            return null;
+
+        return order;
     }
 
-    @ApiOperation(value = "Get list of all orders", response = Order.class, responseContainer = "List", tags = "Get")
+    @ApiOperation(value = "Get orders by specified IDs", notes = "Result is returned as {\"items\": [...], \"missingIds\": [...]}, " +
+            "items are in the format of \"/api/getOrderById\"", response = Order.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getOrdersByIds", produces = "application/json; charset=UTF-8")
+    public String getOrdersByIds(
+            @ApiParam(name = "ids", required = true, value = "Comma-separated order IDs, up to " + BatchResult.MAX_IDS, example = "1,2,3")
+            @RequestParam(value = "ids") List<Integer> ids) {
+        return orderService.findByIds(ids);
+    }
+
+    @ApiOperation(value = "Get list of all orders or, if \"limit\" is specified, a page of orders ordered by ID",
+            notes = "Page is returned as {\"items\": [...], \"nextAfterId\": cursor}. " +
+                    "Response has an ETag of the whole list, a request with the same If-None-Match is answered with 304", response = Order.class, responseContainer = "List", tags = "Get")
     @GetMapping(value = "/getOrders", produces = "application/json; charset=UTF-8")
-    public String getOrders() {
-        return orderService.findAll();
+    public String getOrders(
+            @ApiParam(name = "afterId", value = "Return orders with ID greater than specified (\"nextAfterId\" of the previous page)", example = "0")
+            @RequestParam(value = "afterId", defaultValue = "0") int afterId,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "100")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @ApiIgnore WebRequest request) {
+        if (request.checkNotModified(orderService.listVersionTag()))
+            return null;
+
+        return limit == null ? orderService.findAll() : orderService.findPage(afterId, limit);
+    }
+
+    @ApiOperation(value = "Get a page of orders matching all specified criteria",
+            notes = "Page is returned as {\"items\": [...], \"nextOffset\": offset}", response = Order.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/filterOrders", produces = "application/json; charset=UTF-8")
+    public String filterOrders(
+            @ApiParam(name = "customerId", value = "Customer ID", example = "1")
+            @RequestParam(value = "customerId", required = false) Integer customerId,
+            @ApiParam(name = "completed", value = "Flag of the completion order", example = "false")
+            @RequestParam(value = "completed", required = false) Boolean completed,
+            @ApiParam(name = "createdFrom", value = "Minimum creation date", example = "11.05.2020")
+            @RequestParam(value = "createdFrom", required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate createdFrom,
+            @ApiParam(name = "createdTo", value = "Maximum creation date", example = "17.05.2020")
+            @RequestParam(value = "createdTo", required = false) @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate createdTo,
+            @ApiParam(name = "sort", value = "Comma-separated sort properties (id, creationDate, completeDate), \"-\" for descending order",
+                    example = "-creationDate")
+            @RequestParam(value = "sort", required = false) String sort,
+            @ApiParam(name = "offset", value = "Number of orders to skip (\"nextOffset\" of the previous page)", example = "0")
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @ApiParam(name = "limit", value = "Page size, up to " + KeysetPage.MAX_LIMIT, example = "20")
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return orderService.filter(new OrderFilter(customerId, completed, createdFrom, createdTo, sort), offset, limit);
+    }
+
+    @ApiOperation(value = "Stream list of all orders", notes = "Orders are read with a database cursor and written to the response one by one",
+            response = Order.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getOrders", params = "stream=true", produces = "application/json; charset=UTF-8")
+    public StreamingResponseBody streamOrders() {
+        return orderService::streamAll;
     }
 
     @ApiOperation(value = "Add new order", response = Identificator.class, tags = "Create")
@@ -42,14 +109,17 @@ public class OrderController {
         return new Identificator(orderService.add(order).getId());
     }
 
-    @ApiOperation(value = "Update order", tags = "Update")
+    @ApiOperation(value = "Update order", notes = "If-Match with the ETag of \"/api/getOrderById\" makes the update conditional: " +
+            "if the order was changed since it was read, nothing is written and 409 is returned", tags = "Update")
     @PostMapping(value = "/updateOrder", produces = "application/json; charset=UTF-8")
     public void updateOrder(
             @ApiParam(name = "order", required = true,
                     value = "JSON data of the order, identified by existing order ID. Specified customer and book IDs must exist, " +
                             "other customer and books fields must be null or absent.")
-            @RequestBody Order order) {
-        orderService.update(order);
+            @RequestBody Order order,
+            @ApiParam(name = "If-Match", value = "ETag of the order the update is based on", example = "\"1-2144df1c\"")
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        orderService.update(order, ifMatch);
     }
 
     @ApiOperation(value = "Delete order", tags = "Delete")
@@ -60,6 +130,41 @@ public class OrderController {
         orderService.delete(id);
     }
 
+    @ApiOperation(value = "Add list of new orders", notes = "Request body is read as a stream and written with JDBC batches",
+            response = Identificator.class, responseContainer = "List", tags = "Create")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "orders", required = true, paramType = "body", dataType = "Order", allowMultiple = true,
+                value = "JSON array of the new orders in the format of \"/api/addOrder\"")
+    })
+    @ApiResponses({
+        @ApiResponse(code = 200, message = "Orders added, return IDs of the new orders in the order of the request")
+    })
+    @PostMapping(value = "/addOrders", produces = "application/json; charset=UTF-8")
+    public List<Identificator> addOrders(@ApiIgnore InputStream body) {
+        return orderService.addAll(body).stream().map(Identificator::new).collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Update list of orders", notes = "Request body is read as a stream and written with JDBC batches", tags = "Update")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "orders", required = true, paramType = "body", dataType = "Order", allowMultiple = true,
+                value = "JSON array of the orders in the format of \"/api/updateOrder\", every order with the \"version\" " +
+                        "it is based on, the number before the dash of its entity tag. A changed order fails the update with 409")
+    })
+    @PostMapping(value = "/updateOrders", produces = "application/json; charset=UTF-8")
+    public void updateOrders(@ApiIgnore InputStream body) {
+        orderService.updateAll(body);
+    }
+
+    @ApiOperation(value = "Delete list of orders", tags = "Delete")
+    @ApiImplicitParams({
+        @ApiImplicitParam(name = "ids", required = true, paramType = "body", dataType = "int", allowMultiple = true,
+                value = "JSON array of IDs of existing orders", example = "[1, 2, 3]")
+    })
+    @PostMapping(value = "/deleteOrders", produces = "application/json; charset=UTF-8")
+    public void deleteOrders(@ApiIgnore InputStream body) {
+        orderService.deleteAll(body);
+    }
+
     @ApiOperation(value = "Find orders of customer specified by ID", response = Order.class, responseContainer = "List", tags = "Get")
     @GetMapping(value = "/getOrdersByCustomerId", produces = "application/json; charset=UTF-8")
     public String getOrdersByCustomerId(
@@ -75,4 +180,26 @@ public class OrderController {
             @RequestParam(value = "id") int id) {
         orderService.completeById(id);
     }
+
+    @ApiOperation(value = "Complete list of orders", notes = "Orders are completed with set-based statements in one transaction",
+            response = OrderCompletionReport.class, tags = "Update")
+    @PostMapping(value = "/completeOrders", produces = "application/json; charset=UTF-8")
+    public OrderCompletionReport completeOrders(
+            @ApiParam(name = "ids", required = true, value = "JSON array of order IDs", example = "[1, 2, 3]")
+            @RequestBody List<Integer> ids) {
+        return orderService.completeAll(ids);
+    }
+
+    @ApiOperation(value = "Complete all orders of the customer created in the specified date range",
+            notes = "Orders are completed with set-based statements in one transaction", response = OrderCompletionReport.class, tags = "Update")
+    @PostMapping(value = "/completeCustomerOrders", produces = "application/json; charset=UTF-8")
+    public OrderCompletionReport completeCustomerOrders(
+            @ApiParam(name = "customerId", required = true, value = "Customer ID", example = "1")
+            @RequestParam(value = "customerId") int customerId,
+            @ApiParam(name = "createdFrom", required = true, value = "Minimum creation date", example = "11.05.2020")
+            @RequestParam(value = "createdFrom") @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate createdFrom,
+            @ApiParam(name = "createdTo", required = true, value = "Maximum creation date", example = "17.05.2020")
+            @RequestParam(value = "createdTo") @DateTimeFormat(pattern = "dd.MM.yyyy") LocalDate createdTo) {
+        return orderService.completeAll(customerId, createdFrom, createdTo);
+    }
 }
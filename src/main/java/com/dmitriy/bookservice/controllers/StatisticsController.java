@@ -0,0 +1,44 @@
+package com.dmitriy.bookservice.controllers;
+
+import com.dmitriy.bookservice.metrics.SqlStatistics;
+import com.dmitriy.bookservice.model.SlowQuery;
+import io.swagger.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Api(description = "Statistics REST APIs", tags = "Statistics")
+@RestController
+@RequestMapping("/api")
+public class StatisticsController {
+
+    @Autowired
+    private SqlStatistics sqlStatistics;
+
+    @ApiOperation(value = "Get SQL statistics",
+            notes = "Result is returned as {\"hibernate\": {...}, \"statements\": [...]}: Hibernate session factory statistics " +
+                    "and per-statement execution statistics, statements with the longest total time first",
+            tags = "Get")
+    @GetMapping(value = "/getSqlStatistics", produces = "application/json; charset=UTF-8")
+    public Map<String, Object> getSqlStatistics(
+            @ApiParam(name = "limit", value = "Maximum number of statements", example = "100")
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException("Limit must be positive");
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hibernate", sqlStatistics.hibernate());
+        result.put("statements", sqlStatistics.statements(limit));
+        return result;
+    }
+
+    @ApiOperation(value = "Get slow queries", notes = "Latest statements slower than the threshold, newest first, " +
+            "with their EXPLAIN plans", response = SlowQuery.class, responseContainer = "List", tags = "Get")
+    @GetMapping(value = "/getSlowQueries", produces = "application/json; charset=UTF-8")
+    public List<SlowQuery> getSlowQueries() {
+        return sqlStatistics.slowQueries();
+    }
+}
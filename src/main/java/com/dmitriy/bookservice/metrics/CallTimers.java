@@ -0,0 +1,51 @@
+package com.dmitriy.bookservice.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Times the service and repository calls, endpoints are timed by Spring MVC as http.server.requests
+@Aspect
+@Component
+public class CallTimers {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.dmitriy.bookservice.service..*.*(..))")
+    public Object timeService(ProceedingJoinPoint call) throws Throwable {
+        return time("service.calls", call.getTarget().getClass().getSimpleName(), call);
+    }
+
+    // Repository methods are declared by the repository interfaces and by the Spring Data base interfaces
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint call) throws Throwable {
+        Class<?>[] interfaces = call.getTarget().getClass().getInterfaces();
+        String repository = interfaces.length > 0 ? interfaces[0].getSimpleName() : call.getSignature().getDeclaringType().getSimpleName();
+        return time("repository.calls", repository, call);
+    }
+
+    private Object time(String name, String className, ProceedingJoinPoint call) throws Throwable {
+        long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return call.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            Timer.builder(name)
+                    .tag("class", className)
+                    .tag("method", call.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.dmitriy.bookservice.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+// Records the time and the size of every document serialized to a string, tagged with the view
+public class MeteredObjectMapper extends ObjectMapper {
+
+    private final Timer serialization;
+
+    private final DistributionSummary size;
+
+    public MeteredObjectMapper(String view, MeterRegistry meterRegistry) {
+        serialization = Timer.builder("json.serialization")
+                .tag("view", view)
+                .register(meterRegistry);
+        size = DistributionSummary.builder("json.serialization.size")
+                .tag("view", view)
+                .baseUnit("chars")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String writeValueAsString(Object value) throws JsonProcessingException {
+        long start = System.nanoTime();
+        String json = super.writeValueAsString(value);
+        serialization.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        size.record(json.length());
+        return json;
+    }
+}
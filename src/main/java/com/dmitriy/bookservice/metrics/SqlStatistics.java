@@ -0,0 +1,167 @@
+package com.dmitriy.bookservice.metrics;
+
+import com.dmitriy.bookservice.model.SlowQuery;
+import com.dmitriy.bookservice.model.SqlStatementStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+
+// Per-statement statistics and the latest slow statements, explained off the request thread
+@Component
+public class SqlStatistics {
+
+    private static final String OTHER = "(other statements)";
+
+    @Value("${sql.statistics.maximum-statements:1000}")
+    private int maximumStatements;
+
+    @Value("${sql.slow-queries.threshold:500}")
+    private long slowQueryThreshold;
+
+    @Value("${sql.slow-queries.capacity:100}")
+    private int slowQueryCapacity;
+
+    @Value("${sql.slow-queries.explain:true}")
+    private boolean explain;
+
+    // Resolved on use, the data source itself is wrapped with these statistics
+    @Autowired
+    private ObjectProvider<JdbcTemplate> jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    private final ConcurrentMap<String, SqlStatementStats> statements = new ConcurrentHashMap<>();
+
+    private final AtomicLong slowQueryCount = new AtomicLong();
+
+    private AtomicReferenceArray<SlowQuery> slowQueries;
+
+    private ThreadPoolExecutor explainExecutor;
+
+    @PostConstruct
+    void init() {
+        slowQueries = new AtomicReferenceArray<>(slowQueryCapacity);
+        explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(slowQueryCapacity),
+                new CustomizableThreadFactory("explain-"), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        explainExecutor.shutdownNow();
+    }
+
+    // Returns the statistics to add the rows of the statement to, null for the statements run by the statistics
+    SqlStatementStats executed(String sql, long nanos, List<Object> parameters) {
+        if (sql == null || sql.regionMatches(true, 0, "explain ", 0, 8))
+            return null;
+
+        SqlStatementStats stats = statements.get(sql);
+        if (stats == null) {
+            String key = statements.size() < maximumStatements ? sql : OTHER;
+            stats = statements.computeIfAbsent(key, SqlStatementStats::new);
+        }
+        stats.executed(nanos);
+
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold))
+            slow(sql, nanos, parameters);
+
+        return stats;
+    }
+
+    public List<SqlStatementStats> statements(int limit) {
+        return statements.values().stream()
+                .sorted(Comparator.comparingDouble(SqlStatementStats::getTotalMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Latest first
+    public List<SlowQuery> slowQueries() {
+        List<SlowQuery> result = new ArrayList<>();
+        long last = slowQueryCount.get();
+        for (long i = last - 1; i >= Math.max(0, last - slowQueryCapacity); i--) {
+            SlowQuery slowQuery = slowQueries.get((int)(i % slowQueryCapacity));
+            if (slowQuery != null)
+                result.add(slowQuery);
+        }
+        return result;
+    }
+
+    public Map<String, Object> hibernate() {
+        Statistics statistics = entityManagerFactory.getObject().unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("transactions", statistics.getTransactionCount());
+        result.put("statementsPrepared", statistics.getPrepareStatementCount());
+        result.put("flushes", statistics.getFlushCount());
+        result.put("entitiesLoaded", statistics.getEntityLoadCount());
+        result.put("entitiesFetched", statistics.getEntityFetchCount());
+        result.put("collectionsLoaded", statistics.getCollectionLoadCount());
+        result.put("collectionsFetched", statistics.getCollectionFetchCount());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("queryExecutions", statistics.getQueryExecutionCount());
+        result.put("queryExecutionMaxMillis", statistics.getQueryExecutionMaxTime());
+        result.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+
+        List<Map<String, Object>> queries = new ArrayList<>();
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("query", query);
+            entry.put("count", queryStatistics.getExecutionCount());
+            entry.put("averageMillis", queryStatistics.getExecutionAvgTime());
+            entry.put("maxMillis", queryStatistics.getExecutionMaxTime());
+            entry.put("rows", queryStatistics.getExecutionRowCount());
+            queries.add(entry);
+        }
+        result.put("queries", queries);
+
+        return result;
+    }
+
+    private void slow(String sql, long nanos, List<Object> parameters) {
+        SlowQuery slowQuery = new SlowQuery(sql, nanos / (double)TimeUnit.MILLISECONDS.toNanos(1));
+        slowQueries.set((int)(slowQueryCount.getAndIncrement() % slowQueryCapacity), slowQuery);
+
+        // EXPLAIN without ANALYZE does not run the statement, other statements are not explained
+        String verb = sql.trim().split("\\s", 2)[0].toLowerCase();
+        if (!explain || !verb.matches("select|with|insert|update|delete"))
+            return;
+
+        Object[] arguments = parameters.toArray();
+        explainExecutor.execute(() -> {
+            try {
+                List<String> plan = jdbcTemplate.getObject().query("explain " + sql, arguments, (rs, i) -> rs.getString(1));
+                slowQuery.explained(String.join("\n", plan));
+            } catch (RuntimeException ex) {
+                slowQuery.explained("Failed explain statement: " + ex.getMessage());
+            }
+        });
+    }
+}
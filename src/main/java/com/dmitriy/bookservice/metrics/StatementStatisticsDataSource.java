@@ -0,0 +1,153 @@
+package com.dmitriy.bookservice.metrics;
+
+import com.dmitriy.bookservice.model.SqlStatementStats;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Records the execution time and the rows of every statement, query rows are counted as they are read
+public class StatementStatisticsDataSource extends DelegatingDataSource implements Closeable {
+
+    private final SqlStatistics statistics;
+
+    public StatementStatisticsDataSource(DataSource targetDataSource, SqlStatistics statistics) {
+        super(targetDataSource);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    // The target pool is closed together with the wrapper
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable)
+            ((Closeable)getTargetDataSource()).close();
+    }
+
+    private Connection connection(Connection target) {
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            Object result = invoke(proxy, target, method, args);
+            if (result instanceof Statement && method.getName().matches("createStatement|prepareStatement|prepareCall")) {
+                String sql = method.getName().startsWith("prepare") ? (String)args[0] : null;
+                StatementHandler handler = new StatementHandler((Statement)result, sql);
+                return proxy(method.getReturnType(), result, handler);
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    // Proxies are equal only to themselves, everything else goes to the target
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                try {
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getTargetException();
+                }
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final List<Object> parameters = new ArrayList<>();
+        private String batchSql;
+        private SqlStatementStats executed;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute"))
+                return execute(proxy, method, args);
+
+            Object result = StatementStatisticsDataSource.invoke(proxy, target, method, args);
+            if (preparedSql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+                parameter((Integer)args[0], name.equals("setNull") ? null : args[1]);
+            else if (name.equals("clearParameters"))
+                parameters.clear();
+            else if (name.equals("addBatch") && args != null)
+                batchSql = (String)args[0];
+            else if (name.equals("getResultSet"))
+                return resultSet(proxy, result);
+
+            return result;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String)args[0]
+                    : preparedSql != null ? preparedSql : batchSql;
+
+            long start = System.nanoTime();
+            Object result = StatementStatisticsDataSource.invoke(proxy, target, method, args);
+            executed = statistics.executed(sql, System.nanoTime() - start, parameters);
+            if (executed == null)
+                return result;
+
+            if (result instanceof ResultSet)
+                return resultSet(proxy, result);
+
+            long rows = 0;
+            if (result instanceof Number) {
+                rows = ((Number)result).longValue();
+            } else if (result instanceof int[]) {
+                for (int count : (int[])result)
+                    rows += Math.max(count, 0);
+            } else if (result instanceof long[]) {
+                for (long count : (long[])result)
+                    rows += Math.max(count, 0);
+            } else if (Boolean.FALSE.equals(result)) {
+                rows = Math.max(target.getUpdateCount(), 0);
+            }
+            executed.rows(rows);
+
+            return result;
+        }
+
+        private Object resultSet(Object proxy, Object result) {
+            if (result == null || executed == null)
+                return result;
+            return new CountingResultSet((ResultSet)result, (Statement)proxy, executed);
+        }
+
+        private void parameter(int index, Object value) {
+            while (parameters.size() < index)
+                parameters.add(null);
+            parameters.set(index - 1, value);
+        }
+    }
+}
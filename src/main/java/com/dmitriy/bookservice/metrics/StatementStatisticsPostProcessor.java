@@ -0,0 +1,28 @@
+package com.dmitriy.bookservice.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Wraps the application data source, also the embedded one that replaces it in tests
+@Component
+@ConditionalOnProperty(name = "sql.statistics.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementStatisticsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlStatistics> statistics;
+
+    public StatementStatisticsPostProcessor(ObjectProvider<SqlStatistics> statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && beanName.equals("dataSource") && !(bean instanceof StatementStatisticsDataSource))
+            return new StatementStatisticsDataSource((DataSource)bean, statistics.getObject());
+
+        return bean;
+    }
+}
@@ -3,8 +3,11 @@ package com.dmitriy.bookservice.model;
 import com.dmitriy.bookservice.validation.YearConstraint;
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -13,15 +16,24 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "authors")
 @Table(name = "authors")
 @JsonFilter("nestedFilter")
 public class Author {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "authors_id_seq")
+    @SequenceGenerator(name = "authors_id_seq", sequenceName = "authors_id_seq", allocationSize = 50)
     @ApiModelProperty(value = "Unique ID", name = "id", required = true)
     private int id;
 
+    // Incremented on every update, part of the entity tag of the JSON views and checked by conditional updates
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private int version;
+
     @Column(name = "fullName")
     @ApiModelProperty(value = "Author full name", name = "fullName", required = true, example = "Donald Knuth")
     @NotNull
@@ -39,6 +51,8 @@ public class Author {
             name = "books_authors",
             joinColumns = @JoinColumn(name = "author_id"),
             inverseJoinColumns = @JoinColumn(name = "book_id"))
+    @OrderBy("id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "authors.books")
     @ApiModelProperty(value = "Written books", name = "books", required = true)
     private Set<Book> books = new HashSet<>();
 
@@ -74,6 +88,14 @@ public class Author {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public String getFullName() {
         return fullName;
     }
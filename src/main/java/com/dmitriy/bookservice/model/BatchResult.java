@@ -0,0 +1,48 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+public class BatchResult<T> {
+    public static final int MAX_IDS = 1000;
+
+    @ApiModelProperty(value = "Found items ordered by ID", name = "items", required = true)
+    private List<T> items;
+
+    @ApiModelProperty(value = "Requested IDs that do not exist, in the order of the request", name = "missingIds", required = true)
+    private List<Integer> missingIds;
+
+    public BatchResult(List<T> items, List<Integer> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    // Returns the distinct IDs in the order of the request
+    public static Set<Integer> checkIds(Collection<Integer> ids) {
+        Set<Integer> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > MAX_IDS)
+            throw new IllegalArgumentException("Number of IDs must not exceed " + MAX_IDS);
+
+        return distinct;
+    }
+
+    public static <T> BatchResult<T> of(Set<Integer> ids, List<T> items, ToIntFunction<T> id) {
+        Set<Integer> missing = new LinkedHashSet<>(ids);
+        items.forEach(item -> missing.remove(id.applyAsInt(item)));
+        return new BatchResult<>(items, new ArrayList<>(missing));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public List<Integer> getMissingIds() {
+        return missingIds;
+    }
+}
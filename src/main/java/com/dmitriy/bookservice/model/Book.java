@@ -3,8 +3,11 @@ package com.dmitriy.bookservice.model;
 import com.dmitriy.bookservice.validation.YearConstraint;
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -13,15 +16,24 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books")
 @Table(name = "books")
 @JsonFilter("nestedFilter")
 public class Book {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_id_seq")
+    @SequenceGenerator(name = "books_id_seq", sequenceName = "books_id_seq", allocationSize = 50)
     @ApiModelProperty(value = "Unique ID", name = "id", required = true)
     private int id;
 
+    // Incremented on every update, part of the entity tag of the JSON views and checked by conditional updates
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private int version;
+
     @Column(name = "name")
     @ApiModelProperty(value = "Book name", name = "name", required = true, example = "The Art of Computer Programming")
     @NotNull
@@ -46,6 +58,8 @@ public class Book {
             name = "books_authors",
             joinColumns = @JoinColumn(name = "book_id"),
             inverseJoinColumns = @JoinColumn(name = "author_id"))
+    @OrderBy("id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "books.authors")
     @ApiModelProperty(value = "Book authors", name = "authors", required = true)
     private Set<Author> authors = new HashSet<>();
 
@@ -83,6 +97,14 @@ public class Book {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,43 @@
+package com.dmitriy.bookservice.model;
+
+// Criteria of the book filter, absent (null) criteria are not applied
+public class BookFilter {
+    private final Integer yearFrom;
+
+    private final Integer yearTo;
+
+    private final Integer authorId;
+
+    private final String namePrefix;
+
+    // Comma-separated properties, descending ones prefixed with "-"
+    private final String sort;
+
+    public BookFilter(Integer yearFrom, Integer yearTo, Integer authorId, String namePrefix, String sort) {
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.authorId = authorId;
+        this.namePrefix = namePrefix;
+        this.sort = sort;
+    }
+
+    public Integer getYearFrom() {
+        return yearFrom;
+    }
+
+    public Integer getYearTo() {
+        return yearTo;
+    }
+
+    public Integer getAuthorId() {
+        return authorId;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+}
@@ -0,0 +1,48 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+public class CatalogImportReport {
+    @ApiModelProperty(value = "Number of imported book-author rows", name = "rows", required = true, example = "1000000")
+    private long rows;
+
+    @ApiModelProperty(value = "Number of new authors", name = "authorsAdded", required = true, example = "1000")
+    private long authorsAdded;
+
+    @ApiModelProperty(value = "Number of new books", name = "booksAdded", required = true, example = "10000")
+    private long booksAdded;
+
+    @ApiModelProperty(value = "Number of existing books with changed annotation", name = "booksUpdated", required = true, example = "100")
+    private long booksUpdated;
+
+    @ApiModelProperty(value = "Number of new links between books and authors", name = "linksAdded", required = true, example = "12000")
+    private long linksAdded;
+
+    public CatalogImportReport(long rows, long authorsAdded, long booksAdded, long booksUpdated, long linksAdded) {
+        this.rows = rows;
+        this.authorsAdded = authorsAdded;
+        this.booksAdded = booksAdded;
+        this.booksUpdated = booksUpdated;
+        this.linksAdded = linksAdded;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getAuthorsAdded() {
+        return authorsAdded;
+    }
+
+    public long getBooksAdded() {
+        return booksAdded;
+    }
+
+    public long getBooksUpdated() {
+        return booksUpdated;
+    }
+
+    public long getLinksAdded() {
+        return linksAdded;
+    }
+}
@@ -2,8 +2,11 @@ package com.dmitriy.bookservice.model;
 
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -13,16 +16,25 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers")
 @Table(name = "customers")
 @JsonFilter("nestedFilter")
 public class Customer {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customers_id_seq")
+    @SequenceGenerator(name = "customers_id_seq", sequenceName = "customers_id_seq", allocationSize = 50)
     @ApiModelProperty(value = "Unique ID", name = "id", required = true)
     private int id;
 
+    // Incremented on every update, part of the entity tag of the JSON views and checked by conditional updates
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private int version;
+
     @Column(name = "name")
     @ApiModelProperty(value = "Customer name", name = "name", required = true, example = "Ivanov Ivan")
     @NotNull
@@ -38,6 +50,8 @@ public class Customer {
 
     @OneToMany(mappedBy = "customer")
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Order.class)
+    @OrderBy("id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers.orders")
     @ApiModelProperty(hidden = true)
     private Set<Order> orders = new HashSet<>();
 
@@ -74,6 +88,14 @@ public class Customer {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,45 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+public class KeysetPage<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    @ApiModelProperty(value = "Page items ordered by ID", name = "items", required = true)
+    private List<T> items;
+
+    @ApiModelProperty(value = "Cursor for the next page (value of \"afterId\"), null on the last page", name = "nextAfterId", example = "100")
+    private Integer nextAfterId;
+
+    public KeysetPage(List<T> items, Integer nextAfterId) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+    }
+
+    public static int checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT)
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_LIMIT);
+
+        return limit;
+    }
+
+    // Rows are fetched with limit + 1 to find out whether there is a next page without a count query
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, ToIntFunction<T> id) {
+        if (rows.size() <= limit)
+            return new KeysetPage<>(rows, null);
+
+        List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(items, id.applyAsInt(items.get(limit - 1)));
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextAfterId() {
+        return nextAfterId;
+    }
+}
@@ -4,8 +4,11 @@ import com.dmitriy.bookservice.validation.DateConstraint;
 import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -14,15 +17,24 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders")
 @Table(name = "orders")
 @JsonFilter("nestedFilter")
 public class Order {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_id_seq")
+    @SequenceGenerator(name = "orders_id_seq", sequenceName = "orders_id_seq", allocationSize = 50)
     @ApiModelProperty(value = "Unique ID", name = "id", required = true)
     private int id;
 
+    // Incremented on every update, part of the entity tag of the JSON views and checked by conditional updates
+    @Version
+    @Column(name = "version")
+    @JsonIgnore
+    private int version;
+
     @ManyToOne
     @JoinColumn(name = "customer_id", nullable = false)
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = Customer.class)
@@ -56,6 +68,8 @@ public class Order {
             name = "orders_books",
             joinColumns = @JoinColumn(name = "order_id"),
             inverseJoinColumns = @JoinColumn(name = "book_id"))
+    @OrderBy("id")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "orders.books")
     @ApiModelProperty(value = "Ordered books", name = "books", required = true)
     private Set<Book> books = new HashSet<>();
 
@@ -94,6 +108,14 @@ public class Order {
         this.id = id;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     public Customer getCustomer() {
         return customer;
     }
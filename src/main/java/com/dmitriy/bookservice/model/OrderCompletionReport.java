@@ -0,0 +1,34 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+public class OrderCompletionReport {
+    @ApiModelProperty(value = "IDs of the orders completed by the request, ascending", name = "completedIds", required = true)
+    private List<Integer> completedIds;
+
+    @ApiModelProperty(value = "IDs of the selected orders that were already completed, ascending", name = "alreadyCompletedIds", required = true)
+    private List<Integer> alreadyCompletedIds;
+
+    @ApiModelProperty(value = "Requested IDs that do not exist, in the order of the request", name = "missingIds", required = true)
+    private List<Integer> missingIds;
+
+    public OrderCompletionReport(List<Integer> completedIds, List<Integer> alreadyCompletedIds, List<Integer> missingIds) {
+        this.completedIds = completedIds;
+        this.alreadyCompletedIds = alreadyCompletedIds;
+        this.missingIds = missingIds;
+    }
+
+    public List<Integer> getCompletedIds() {
+        return completedIds;
+    }
+
+    public List<Integer> getAlreadyCompletedIds() {
+        return alreadyCompletedIds;
+    }
+
+    public List<Integer> getMissingIds() {
+        return missingIds;
+    }
+}
@@ -0,0 +1,45 @@
+package com.dmitriy.bookservice.model;
+
+import java.time.LocalDate;
+
+// Criteria of the order filter, absent (null) criteria are not applied. Date bounds are inclusive.
+public class OrderFilter {
+    private final Integer customerId;
+
+    private final Boolean completed;
+
+    private final LocalDate createdFrom;
+
+    private final LocalDate createdTo;
+
+    // Comma-separated properties, descending ones prefixed with "-"
+    private final String sort;
+
+    public OrderFilter(Integer customerId, Boolean completed, LocalDate createdFrom, LocalDate createdTo, String sort) {
+        this.customerId = customerId;
+        this.completed = completed;
+        this.createdFrom = createdFrom;
+        this.createdTo = createdTo;
+        this.sort = sort;
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public LocalDate getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public LocalDate getCreatedTo() {
+        return createdTo;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+}
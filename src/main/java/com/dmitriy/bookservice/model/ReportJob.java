@@ -0,0 +1,89 @@
+package com.dmitriy.bookservice.model;
+
+import com.dmitriy.bookservice.projection.OrderReportRow;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+public class ReportJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    @ApiModelProperty(value = "ID of the job", name = "id", required = true, example = "3f2b8c1e-6a0d-4b8e-9a51-2f7c0c1d9e47")
+    private final String id;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy")
+    @ApiModelProperty(value = "Start date", name = "startDate", required = true, example = "13.05.2020")
+    private final Date startDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy")
+    @ApiModelProperty(value = "End date", name = "endDate", required = true, example = "13.05.2020")
+    private final Date endDate;
+
+    @ApiModelProperty(value = "Include only completed orders", name = "onlyCompleted", example = "true")
+    private final Boolean onlyCompleted;
+
+    @ApiModelProperty(value = "Status of the job", name = "status", required = true, example = "DONE")
+    private volatile Status status = Status.QUEUED;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @ApiModelProperty(value = "Error message of the failed job", name = "error")
+    private volatile String error;
+
+    @JsonIgnore
+    private volatile List<OrderReportRow> result;
+
+    public ReportJob(Date startDate, Date endDate, Boolean onlyCompleted) {
+        this.id = UUID.randomUUID().toString();
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.onlyCompleted = onlyCompleted;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public Boolean getOnlyCompleted() {
+        return onlyCompleted;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<OrderReportRow> getResult() {
+        return result;
+    }
+
+    public void running() {
+        status = Status.RUNNING;
+    }
+
+    public void done(List<OrderReportRow> result) {
+        this.result = result;
+        status = Status.DONE;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.List;
+
+public class SearchPage<T> {
+
+    @ApiModelProperty(value = "Page items in the order of the query", name = "items", required = true)
+    private List<T> items;
+
+    @ApiModelProperty(value = "Offset of the next page, null on the last page", name = "nextOffset", example = "20")
+    private Integer nextOffset;
+
+    public SearchPage(List<T> items, Integer nextOffset) {
+        this.items = items;
+        this.nextOffset = nextOffset;
+    }
+
+    // Rows are fetched with limit + 1 to find out whether there is a next page without a count query
+    public static <T> SearchPage<T> of(List<T> rows, int offset, int limit) {
+        if (rows.size() <= limit)
+            return new SearchPage<>(rows, null);
+
+        return new SearchPage<>(rows.subList(0, limit), offset + limit);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+}
@@ -0,0 +1,47 @@
+package com.dmitriy.bookservice.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.Date;
+
+public class SlowQuery {
+    @ApiModelProperty(value = "SQL text of the statement, parameters are not recorded", name = "sql", required = true)
+    private final String sql;
+
+    @ApiModelProperty(value = "Execution time, result fetching excluded", name = "millis", required = true)
+    private final double millis;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy HH:mm:ss.SSS")
+    @ApiModelProperty(value = "Time the execution finished", name = "executedAt", required = true, example = "13.05.2020 12:30:15.250")
+    private final Date executedAt;
+
+    @ApiModelProperty(value = "EXPLAIN output for the recorded parameters, null until it is ready", name = "plan")
+    private volatile String plan;
+
+    public SlowQuery(String sql, double millis) {
+        this.sql = sql;
+        this.millis = millis;
+        this.executedAt = new Date();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public double getMillis() {
+        return millis;
+    }
+
+    public Date getExecutedAt() {
+        return executedAt;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public void explained(String plan) {
+        this.plan = plan;
+    }
+}
@@ -0,0 +1,58 @@
+package com.dmitriy.bookservice.model;
+
+import io.swagger.annotations.ApiModelProperty;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SqlStatementStats {
+    @ApiModelProperty(value = "SQL text of the statement", name = "sql", required = true)
+    private final String sql;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private final LongAdder rows = new LongAdder();
+
+    public SqlStatementStats(String sql) {
+        this.sql = sql;
+    }
+
+    public void executed(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void rows(long rows) {
+        this.rows.add(rows);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    @ApiModelProperty(value = "Number of executions", name = "count", required = true)
+    public long getCount() {
+        return count.sum();
+    }
+
+    @ApiModelProperty(value = "Total execution time, result fetching excluded", name = "totalMillis", required = true)
+    public double getTotalMillis() {
+        return totalNanos.sum() / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ApiModelProperty(value = "Longest execution time", name = "maxMillis", required = true)
+    public double getMaxMillis() {
+        return maxNanos.get() / (double)TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ApiModelProperty(value = "Rows read from the results plus rows changed", name = "rows", required = true)
+    public long getRows() {
+        return rows.sum();
+    }
+}
@@ -0,0 +1,42 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class AuthorView {
+    @JsonIgnore
+    private Integer ownerId;
+
+    private int id;
+
+    private String fullName;
+
+    private int birthYear;
+
+    public AuthorView(int id, String fullName, int birthYear) {
+        this.id = id;
+        this.fullName = fullName;
+        this.birthYear = birthYear;
+    }
+
+    // Row of a joined collection, ownerId is the ID of the entity the collection belongs to
+    public AuthorView(int ownerId, int id, String fullName, int birthYear) {
+        this(id, fullName, birthYear);
+        this.ownerId = ownerId;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public int getBirthYear() {
+        return birthYear;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AuthorWithBooks extends AuthorView {
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = BookView.class)
+    private List<BookView> books = new ArrayList<>();
+
+    public AuthorWithBooks(int id, String fullName, int birthYear) {
+        super(id, fullName, birthYear);
+    }
+
+    public List<BookView> getBooks() {
+        return books;
+    }
+}
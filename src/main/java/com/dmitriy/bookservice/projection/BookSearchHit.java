@@ -0,0 +1,49 @@
+package com.dmitriy.bookservice.projection;
+
+public class BookSearchHit {
+    private int id;
+
+    private String name;
+
+    private int publicationYear;
+
+    private double rank;
+
+    // Name and annotation fragments with matched words wrapped in <b></b>
+    private String nameHighlight;
+
+    private String annotationSnippet;
+
+    public BookSearchHit(int id, String name, int publicationYear, double rank, String nameHighlight, String annotationSnippet) {
+        this.id = id;
+        this.name = name;
+        this.publicationYear = publicationYear;
+        this.rank = rank;
+        this.nameHighlight = nameHighlight;
+        this.annotationSnippet = annotationSnippet;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPublicationYear() {
+        return publicationYear;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+
+    public String getNameHighlight() {
+        return nameHighlight;
+    }
+
+    public String getAnnotationSnippet() {
+        return annotationSnippet;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+public class BookView {
+    @JsonIgnore
+    private Integer ownerId;
+
+    private int id;
+
+    private String name;
+
+    private int publicationYear;
+
+    private String annotation;
+
+    public BookView(int id, String name, int publicationYear, String annotation) {
+        this.id = id;
+        this.name = name;
+        this.publicationYear = publicationYear;
+        this.annotation = annotation;
+    }
+
+    // Row of a joined collection, ownerId is the ID of the entity the collection belongs to
+    public BookView(int ownerId, int id, String name, int publicationYear, String annotation) {
+        this(id, name, publicationYear, annotation);
+        this.ownerId = ownerId;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPublicationYear() {
+        return publicationYear;
+    }
+
+    public String getAnnotation() {
+        return annotation;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookWithAuthors extends BookView {
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = AuthorView.class)
+    private List<AuthorView> authors = new ArrayList<>();
+
+    public BookWithAuthors(int id, String name, int publicationYear, String annotation) {
+        super(id, name, publicationYear, annotation);
+    }
+
+    public List<AuthorView> getAuthors() {
+        return authors;
+    }
+}
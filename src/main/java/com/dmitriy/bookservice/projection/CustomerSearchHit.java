@@ -0,0 +1,35 @@
+package com.dmitriy.bookservice.projection;
+
+public class CustomerSearchHit {
+    private int id;
+
+    private String name;
+
+    private String phone;
+
+    // Trigram similarity of the name and the query, from 0 to 1
+    private double similarity;
+
+    public CustomerSearchHit(int id, String name, String phone, double similarity) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.similarity = similarity;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+}
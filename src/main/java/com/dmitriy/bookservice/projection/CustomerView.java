@@ -0,0 +1,27 @@
+package com.dmitriy.bookservice.projection;
+
+public class CustomerView {
+    private int id;
+
+    private String name;
+
+    private String phone;
+
+    public CustomerView(int id, String name, String phone) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+}
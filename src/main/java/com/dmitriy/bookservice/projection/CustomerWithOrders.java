@@ -0,0 +1,20 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CustomerWithOrders extends CustomerView {
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = OrderView.class)
+    private List<OrderWithBooks> orders = new ArrayList<>();
+
+    public CustomerWithOrders(int id, String name, String phone) {
+        super(id, name, phone);
+    }
+
+    public List<OrderWithBooks> getOrders() {
+        return orders;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dmitriy.bookservice.projection;
+
+public class NameSuggestion {
+    private int id;
+
+    private String name;
+
+    public NameSuggestion(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
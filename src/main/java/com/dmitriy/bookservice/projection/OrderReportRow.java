@@ -0,0 +1,42 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+@JsonPropertyOrder({"name", "phone", "bookCount", "completed"})
+public class OrderReportRow {
+    private String name;
+
+    private String phone;
+
+    private long bookCount;
+
+    // Only in the report with completed flag: whether all orders of the customer are completed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean completed;
+
+    public OrderReportRow() {}
+
+    public OrderReportRow(String name, String phone, long bookCount, Boolean completed) {
+        this.name = name;
+        this.phone = phone;
+        this.bookCount = bookCount;
+        this.completed = completed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public long getBookCount() {
+        return bookCount;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+}
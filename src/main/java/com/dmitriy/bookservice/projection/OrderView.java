@@ -0,0 +1,71 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.Date;
+
+public class OrderView {
+    @JsonIgnore
+    private Integer ownerId;
+
+    private int id;
+
+    // Absent when the order is embedded into its customer
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = CustomerView.class)
+    private CustomerView customer;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy", timezone="UTC")
+    private Date creationDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd.MM.yyyy", timezone="UTC")
+    private Date completeDate;
+
+    private Boolean completed;
+
+    public OrderView(int id, int customerId, String customerName, String customerPhone,
+                     Date creationDate, Date completeDate, Boolean completed) {
+        this.id = id;
+        this.customer = new CustomerView(customerId, customerName, customerPhone);
+        this.creationDate = creationDate;
+        this.completeDate = completeDate;
+        this.completed = completed;
+    }
+
+    // Order of a customer, ownerId is the customer ID
+    public OrderView(int ownerId, int id, Date creationDate, Date completeDate, Boolean completed) {
+        this.ownerId = ownerId;
+        this.id = id;
+        this.creationDate = creationDate;
+        this.completeDate = completeDate;
+        this.completed = completed;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public CustomerView getCustomer() {
+        return customer;
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public Date getCompleteDate() {
+        return completeDate;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+}
@@ -0,0 +1,26 @@
+package com.dmitriy.bookservice.projection;
+
+import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class OrderWithBooks extends OrderView {
+    @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id", scope = BookView.class)
+    private List<BookView> books = new ArrayList<>();
+
+    public OrderWithBooks(int id, int customerId, String customerName, String customerPhone,
+                          Date creationDate, Date completeDate, Boolean completed) {
+        super(id, customerId, customerName, customerPhone, creationDate, completeDate, completed);
+    }
+
+    public OrderWithBooks(int ownerId, int id, Date creationDate, Date completeDate, Boolean completed) {
+        super(ownerId, id, creationDate, completeDate, completed);
+    }
+
+    public List<BookView> getBooks() {
+        return books;
+    }
+}
@@ -1,12 +1,50 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.AuthorWithBooks;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.NameSuggestion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AuthorRepository extends CrudRepository<Author, Integer> {
-    List<Author> findByFullName(String fullName);
+    @Query("select new com.dmitriy.bookservice.projection.AuthorWithBooks(a.id, a.fullName, a.birthYear) from Author a where a.id in ?1 order by a.id")
+    List<AuthorWithBooks> findDetailsByIds(Collection<Integer> ids);
+
+    @Query("select new com.dmitriy.bookservice.projection.AuthorWithBooks(a.id, a.fullName, a.birthYear) from Author a where a.fullName = ?1")
+    List<AuthorWithBooks> findDetailsByFullName(String fullName);
+
+    // Version of the author and IDs and versions of its books, ordered as in the JSON view
+    @Query("select a.version, b.id, b.version from Author a left join a.books b where a.id = ?1 order by b.id")
+    List<Object[]> probeVersions(int id);
+
+    @Query("select new com.dmitriy.bookservice.projection.BookView(a.id, b.id, b.name, b.publicationYear, b.annotation) " +
+            "from Author a join a.books b where a.id in ?1 order by b.id")
+    List<BookView> findBooksByAuthorIds(Collection<Integer> authorIds);
+
+    @Query("select new com.dmitriy.bookservice.projection.AuthorView(a.id, a.fullName, a.birthYear) from Author a")
+    List<AuthorView> findViews();
+
+    @Query("select new com.dmitriy.bookservice.projection.AuthorView(a.id, a.fullName, a.birthYear) from Author a where a.id > ?1 order by a.id")
+    List<AuthorView> findViewsByIdGreaterThan(int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.AuthorView(a.id, a.fullName, a.birthYear) from Author a order by a.id")
+    Stream<AuthorView> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.NameSuggestion(a.id, a.fullName) from Author a")
+    List<NameSuggestion> findNames();
 }
@@ -0,0 +1,10 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.model.BookFilter;
+import com.dmitriy.bookservice.projection.BookView;
+
+import java.util.List;
+
+public interface BookFilterRepository {
+    List<BookView> filterViews(BookFilter filter, int offset, int limit);
+}
@@ -0,0 +1,56 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.BookFilter;
+import com.dmitriy.bookservice.projection.BookView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Only the given criteria go into the query, so the planner can use the index of the most selective one
+public class BookFilterRepositoryImpl implements BookFilterRepository {
+
+    private static final Set<String> SORT_PROPERTIES = new HashSet<>(Arrays.asList("id", "name", "publicationYear"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookView> filterViews(BookFilter filter, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookView> query = cb.createQuery(BookView.class);
+        Root<Book> book = query.from(Book.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getYearFrom() != null)
+            where.add(cb.greaterThanOrEqualTo(book.<Integer>get("publicationYear"), filter.getYearFrom()));
+
+        if (filter.getYearTo() != null)
+            where.add(cb.lessThanOrEqualTo(book.<Integer>get("publicationYear"), filter.getYearTo()));
+
+        if (filter.getNamePrefix() != null)
+            where.add(cb.like(book.<String>get("name"), FilterQueries.prefixPattern(filter.getNamePrefix()), FilterQueries.ESCAPE));
+
+        // A book has an author once, so the join does not duplicate rows
+        if (filter.getAuthorId() != null)
+            where.add(cb.equal(book.join("authors").get("id"), filter.getAuthorId()));
+
+        query.select(cb.construct(BookView.class, book.get("id"), book.get("name"), book.get("publicationYear"), book.get("annotation")))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(FilterQueries.orderBy(cb, book, SORT_PROPERTIES, filter.getSort()));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -1,12 +1,53 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
+import com.dmitriy.bookservice.projection.NameSuggestion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface BookRepository extends CrudRepository<Book, Integer> {
-    List<Book> findByName(String name);
+public interface BookRepository extends CrudRepository<Book, Integer>, BookFilterRepository {
+    @Query("select new com.dmitriy.bookservice.projection.BookWithAuthors(b.id, b.name, b.publicationYear, b.annotation) " +
+            "from Book b where b.id in ?1 order by b.id")
+    List<BookWithAuthors> findDetailsByIds(Collection<Integer> ids);
+
+    @Query("select new com.dmitriy.bookservice.projection.BookWithAuthors(b.id, b.name, b.publicationYear, b.annotation) " +
+            "from Book b where b.name = ?1")
+    List<BookWithAuthors> findDetailsByName(String name);
+
+    // Version of the book and IDs and versions of its authors, ordered as in the JSON view
+    @Query("select b.version, a.id, a.version from Book b left join b.authors a where b.id = ?1 order by a.id")
+    List<Object[]> probeVersions(int id);
+
+    @Query("select new com.dmitriy.bookservice.projection.AuthorView(b.id, a.id, a.fullName, a.birthYear) " +
+            "from Book b join b.authors a where b.id in ?1 order by a.id")
+    List<AuthorView> findAuthorsByBookIds(Collection<Integer> bookIds);
+
+    @Query("select new com.dmitriy.bookservice.projection.BookView(b.id, b.name, b.publicationYear, b.annotation) from Book b")
+    List<BookView> findViews();
+
+    @Query("select new com.dmitriy.bookservice.projection.BookView(b.id, b.name, b.publicationYear, b.annotation) " +
+            "from Book b where b.id > ?1 order by b.id")
+    List<BookView> findViewsByIdGreaterThan(int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.BookView(b.id, b.name, b.publicationYear, b.annotation) from Book b order by b.id")
+    Stream<BookView> streamAll();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.NameSuggestion(b.id, b.name) from Book b")
+    List<NameSuggestion> findNames();
 }
@@ -0,0 +1,10 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.projection.OrderReportRow;
+
+import java.util.Date;
+import java.util.stream.Stream;
+
+public interface CustomerReportRepository {
+    Stream<OrderReportRow> streamOrderReport(Date startDate, Date endDate, Boolean onlyCompleted);
+}
@@ -0,0 +1,55 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.projection.OrderReportRow;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+// Reports are read from order_daily_rollups with a forward-only cursor
+public class CustomerReportRepositoryImpl implements CustomerReportRepository {
+
+    private static final String REPORT =
+            "SELECT CAST(customers.name AS varchar), CAST(customers.phone AS varchar), SUM(r.books) " +
+            "FROM customers, order_daily_rollups r " +
+            "WHERE customers.id = r.customer_id AND r.day >= ?1 AND r.day <= ?2 " +
+            "GROUP BY customers.id, customers.name, customers.phone HAVING SUM(r.books) > 0";
+
+    private static final String REPORT_ONLY_COMPLETED =
+            "SELECT CAST(customers.name AS varchar), CAST(customers.phone AS varchar), SUM(r.completed_books) " +
+            "FROM customers, order_daily_rollups r " +
+            "WHERE customers.id = r.customer_id AND r.day >= ?1 AND r.day <= ?2 " +
+            "GROUP BY customers.id, customers.name, customers.phone HAVING SUM(r.completed_books) > 0";
+
+    private static final String REPORT_WITH_COMPLETED_FLAG =
+            "SELECT CAST(customers.name AS varchar), CAST(customers.phone AS varchar), SUM(r.books), SUM(r.completed_books) = SUM(r.books) " +
+            "FROM customers, order_daily_rollups r " +
+            "WHERE customers.id = r.customer_id AND r.day >= ?1 AND r.day <= ?2 " +
+            "GROUP BY customers.id, customers.name, customers.phone HAVING SUM(r.books) > 0";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${report.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<OrderReportRow> streamOrderReport(Date startDate, Date endDate, Boolean onlyCompleted) {
+        String sql = onlyCompleted == null ? REPORT : onlyCompleted ? REPORT_ONLY_COMPLETED : REPORT_WITH_COMPLETED_FLAG;
+
+        Stream<Object[]> rows = entityManager.createNativeQuery(sql)
+                .setParameter(1, startDate, TemporalType.DATE)
+                .setParameter(2, endDate, TemporalType.DATE)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+
+        return rows.map(row -> new OrderReportRow((String)row[0], (String)row[1], ((Number)row[2]).longValue(),
+                row.length > 3 ? (Boolean)row[3] : null));
+    }
+}
@@ -1,35 +1,41 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.CustomerView;
+import com.dmitriy.bookservice.projection.CustomerWithOrders;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Date;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface CustomerRepository extends CrudRepository<Customer, Integer> {
-    List<Customer> findByName(String name);
-
-    @Query(value = "SELECT customers.name, customers.phone, COUNT(books.id) " +
-            "FROM customers, orders, orders_books, books " +
-            "WHERE customers.id = orders.customer_id AND orders.id = orders_books.order_id AND orders_books.book_id = books.id " +
-            "AND orders.creationDate >= ?1 AND orders.creationDate <= ?2 " +
-            "GROUP BY customers.id", nativeQuery = true)
-    List<Object[]> reportOrders(Date startDate, Date endDate);
-
-    @Query(value = "SELECT customers.name, customers.phone, COUNT(books.id) " +
-            "FROM customers, orders, orders_books, books " +
-            "WHERE customers.id = orders.customer_id AND orders.id = orders_books.order_id AND orders_books.book_id = books.id " +
-            "AND orders.creationDate >= ?1 AND orders.creationDate <= ?2 AND orders.completed = true " +
-            "GROUP BY customers.id", nativeQuery = true)
-    List<Object[]> reportOrdersOnlyCompleted(Date startDate, Date endDate);
-
-    @Query(value = "SELECT customers.name, customers.phone, COUNT(books.id), BOOL_AND(orders.completed) " +
-            "FROM customers, orders, orders_books, books " +
-            "WHERE customers.id = orders.customer_id AND orders.id = orders_books.order_id AND orders_books.book_id = books.id " +
-            "AND orders.creationDate >= ?1 AND orders.creationDate <= ?2 " +
-            "GROUP BY customers.id", nativeQuery = true)
-    List<Object[]> reportOrdersWithCompletedFlag(Date startDate, Date endDate);
+public interface CustomerRepository extends CrudRepository<Customer, Integer>, CustomerReportRepository {
+    @Query("select new com.dmitriy.bookservice.projection.CustomerWithOrders(c.id, c.name, c.phone) from Customer c where c.id in ?1 order by c.id")
+    List<CustomerWithOrders> findDetailsByIds(Collection<Integer> ids);
+
+    @Query("select new com.dmitriy.bookservice.projection.CustomerWithOrders(c.id, c.name, c.phone) from Customer c where c.name = ?1")
+    List<CustomerWithOrders> findDetailsByName(String name);
+
+    // Version of the customer and IDs and versions of its orders and their books, ordered as in the JSON view
+    @Query("select c.version, o.id, o.version, b.id, b.version from Customer c left join c.orders o left join o.books b " +
+            "where c.id = ?1 order by o.id, b.id")
+    List<Object[]> probeVersions(int id);
+
+    @Query("select new com.dmitriy.bookservice.projection.CustomerView(c.id, c.name, c.phone) from Customer c")
+    List<CustomerView> findViews();
+
+    @Query("select new com.dmitriy.bookservice.projection.CustomerView(c.id, c.name, c.phone) from Customer c where c.id > ?1 order by c.id")
+    List<CustomerView> findViewsByIdGreaterThan(int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.CustomerView(c.id, c.name, c.phone) from Customer c order by c.id")
+    Stream<CustomerView> streamAll();
 }
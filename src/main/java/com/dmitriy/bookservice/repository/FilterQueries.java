@@ -0,0 +1,47 @@
+package com.dmitriy.bookservice.repository;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Helpers shared by the criteria queries of the filter repositories
+final class FilterQueries {
+
+    static final char ESCAPE = '\\';
+
+    private FilterQueries() {}
+
+    // LIKE pattern matching values that start with the prefix, so an index on the column can serve it
+    static String prefixPattern(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    // Sort is a comma-separated list of allowed properties, "-" marks descending order. ID is always the last
+    // sort key, so pages of equal values do not overlap.
+    static List<Order> orderBy(CriteriaBuilder cb, Path<?> root, Set<String> allowed, String sort) {
+        List<Order> result = new ArrayList<>();
+        boolean byId = false;
+
+        if (sort != null && !sort.trim().isEmpty()) {
+            for (String key : sort.split(",")) {
+                key = key.trim();
+                boolean descending = key.startsWith("-");
+                String property = descending ? key.substring(1) : key;
+
+                if (!allowed.contains(property))
+                    throw new IllegalArgumentException("Unknown sort property \"" + property + "\", allowed: " + allowed);
+
+                result.add(descending ? cb.desc(root.get(property)) : cb.asc(root.get(property)));
+                byId |= property.equals("id");
+            }
+        }
+
+        if (!byId)
+            result.add(cb.asc(root.get("id")));
+
+        return result;
+    }
+}
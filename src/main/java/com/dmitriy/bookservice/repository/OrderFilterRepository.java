@@ -0,0 +1,10 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.model.OrderFilter;
+import com.dmitriy.bookservice.projection.OrderView;
+
+import java.util.List;
+
+public interface OrderFilterRepository {
+    List<OrderView> filterViews(OrderFilter filter, int offset, int limit);
+}
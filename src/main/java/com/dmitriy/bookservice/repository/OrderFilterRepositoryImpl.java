@@ -0,0 +1,60 @@
+package com.dmitriy.bookservice.repository;
+
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.model.OrderFilter;
+import com.dmitriy.bookservice.projection.OrderView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// The completed flag is written as a literal, so the partial ind_order_uncompleted_dates can be used
+public class OrderFilterRepositoryImpl implements OrderFilterRepository {
+
+    private static final Set<String> SORT_PROPERTIES = new HashSet<>(Arrays.asList("id", "creationDate", "completeDate"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderView> filterViews(OrderFilter filter, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderView> query = cb.createQuery(OrderView.class);
+        Root<Order> order = query.from(Order.class);
+        Join<Order, Customer> customer = order.join("customer");
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getCustomerId() != null)
+            where.add(cb.equal(order.get("customer").get("id"), filter.getCustomerId()));
+
+        if (filter.getCompleted() != null)
+            where.add(filter.getCompleted() ? cb.isTrue(order.<Boolean>get("completed")) : cb.isFalse(order.<Boolean>get("completed")));
+
+        if (filter.getCreatedFrom() != null)
+            where.add(cb.greaterThanOrEqualTo(order.<Date>get("creationDate"), java.sql.Date.valueOf(filter.getCreatedFrom())));
+
+        if (filter.getCreatedTo() != null)
+            where.add(cb.lessThanOrEqualTo(order.<Date>get("creationDate"), java.sql.Date.valueOf(filter.getCreatedTo())));
+
+        query.select(cb.construct(OrderView.class, order.get("id"), customer.get("id"), customer.get("name"), customer.get("phone"),
+                        order.get("creationDate"), order.get("completeDate"), order.get("completed")))
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(FilterQueries.orderBy(cb, order, SORT_PROPERTIES, filter.getSort()));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
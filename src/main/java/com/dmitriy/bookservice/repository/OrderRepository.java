@@ -1,12 +1,49 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.OrderView;
+import com.dmitriy.bookservice.projection.OrderWithBooks;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface OrderRepository extends CrudRepository<Order, Integer> {
-    List<Order> findByCustomerId(int id);
+public interface OrderRepository extends CrudRepository<Order, Integer>, OrderFilterRepository {
+    @Query("select new com.dmitriy.bookservice.projection.OrderWithBooks(o.id, c.id, c.name, c.phone, o.creationDate, o.completeDate, o.completed) " +
+            "from Order o join o.customer c where o.id in ?1 order by o.id")
+    List<OrderWithBooks> findDetailsByIds(Collection<Integer> ids);
+
+    @Query("select new com.dmitriy.bookservice.projection.OrderWithBooks(o.customer.id, o.id, o.creationDate, o.completeDate, o.completed) " +
+            "from Order o where o.customer.id in ?1 order by o.id")
+    List<OrderWithBooks> findDetailsByCustomerIds(Collection<Integer> customerIds);
+
+    // Version of the order, ID and version of its customer and IDs and versions of its books, ordered as in the JSON view
+    @Query("select o.version, c.id, c.version, b.id, b.version from Order o join o.customer c left join o.books b " +
+            "where o.id = ?1 order by b.id")
+    List<Object[]> probeVersions(int id);
+
+    @Query("select new com.dmitriy.bookservice.projection.BookView(o.id, b.id, b.name, b.publicationYear, b.annotation) " +
+            "from Order o join o.books b where o.id in ?1 order by b.id")
+    List<BookView> findBooksByOrderIds(Collection<Integer> orderIds);
+
+    @Query("select new com.dmitriy.bookservice.projection.OrderView(o.id, c.id, c.name, c.phone, o.creationDate, o.completeDate, o.completed) from Order o join o.customer c")
+    List<OrderView> findViews();
+
+    @Query("select new com.dmitriy.bookservice.projection.OrderView(o.id, c.id, c.name, c.phone, o.creationDate, o.completeDate, o.completed) " +
+            "from Order o join o.customer c where o.id > ?1 order by o.id")
+    List<OrderView> findViewsByIdGreaterThan(int afterId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.dmitriy.bookservice.projection.OrderView(o.id, c.id, c.name, c.phone, o.creationDate, o.completeDate, o.completed) from Order o join o.customer c order by o.id")
+    Stream<OrderView> streamAll();
 }
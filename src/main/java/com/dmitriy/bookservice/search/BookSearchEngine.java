@@ -0,0 +1,18 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.BookSearchHit;
+
+import java.util.Collection;
+import java.util.List;
+
+// Full-text book search, the implementation is selected by search.engine: postgres (default) or memory
+public interface BookSearchEngine {
+    List<BookSearchHit> search(String query, int offset, int limit);
+
+    default void index(Collection<Book> books) {}
+
+    default void remove(Collection<Integer> ids) {}
+
+    default void rebuild() {}
+}
@@ -0,0 +1,16 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.CustomerSearchHit;
+
+import java.util.Collection;
+import java.util.List;
+
+// Typo-tolerant customer search by trigram similarity, selected by search.engine like BookSearchEngine
+public interface CustomerSearchEngine {
+    List<CustomerSearchHit> search(String name, int limit);
+
+    default void index(Collection<Customer> customers) {}
+
+    default void remove(Collection<Integer> ids) {}
+}
@@ -0,0 +1,230 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.cache.AfterCommit;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.BookSearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// In-process TF-IDF index for H2 and embedded use, loaded by the first search and updated after commit
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory")
+public class MemoryBookSearchEngine implements BookSearchEngine {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final double NAME_WEIGHT = 1.0;
+
+    private static final double ANNOTATION_WEIGHT = 0.4;
+
+    private static final int SNIPPET_WORDS = 20;
+
+    private static final int SNIPPET_WORDS_BEFORE = 5;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    // Word -> book ID -> weighted word frequency
+    private final Map<String, Map<Integer, Double>> postings = new HashMap<>();
+
+    private volatile boolean loaded;
+
+    @Override
+    public List<BookSearchHit> search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(words(query));
+        if (terms.isEmpty())
+            return Collections.emptyList();
+
+        if (!loaded)
+            write(() -> {
+                if (!loaded)
+                    load();
+            });
+
+        List<Map.Entry<Document, Double>> hits = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Double> scores = null;
+            for (String term : terms) {
+                Map<Integer, Double> docs = postings.get(term);
+                if (docs == null)
+                    return Collections.emptyList();
+
+                double idf = Math.log(1 + (double)documents.size() / docs.size());
+                if (scores == null) {
+                    scores = new HashMap<>();
+                    for (Map.Entry<Integer, Double> doc : docs.entrySet())
+                        scores.put(doc.getKey(), doc.getValue() * idf);
+                } else {
+                    scores.keySet().retainAll(docs.keySet());
+                    scores.replaceAll((id, score) -> score + docs.get(id) * idf);
+                }
+            }
+
+            scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                    .skip(offset)
+                    .limit(limit)
+                    .forEach(hit -> hits.add(new HashMap.SimpleImmutableEntry<>(documents.get(hit.getKey()), hit.getValue())));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return hits.stream()
+                .map(hit -> {
+                    Document doc = hit.getKey();
+                    return new BookSearchHit(doc.id, doc.name, doc.publicationYear, hit.getValue(),
+                            highlight(doc.name, terms), snippet(doc.annotation, terms));
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void index(Collection<Book> books) {
+        List<Document> docs = books.stream().map(Document::new).collect(Collectors.toList());
+        AfterCommit.runAfterCommit(() -> write(() -> docs.forEach(this::put)));
+    }
+
+    @Override
+    public void remove(Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>(ids);
+        AfterCommit.runAfterCommit(() -> write(() -> removed.forEach(this::removeDocument)));
+    }
+
+    @Override
+    public void rebuild() {
+        AfterCommit.runAfterCommit(() -> write(this::load));
+    }
+
+    // Runs under the write lock, so the writes committed while the table is read are applied after the load
+    private void load() {
+        List<Document> docs = jdbcTemplate.query("select id, name, publicationYear, annotation from books",
+                (rs, i) -> new Document(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4)));
+
+        documents.clear();
+        postings.clear();
+        loaded = true;
+        docs.forEach(this::put);
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Writes before the first load are skipped, the load reads them from the database
+    private void put(Document doc) {
+        if (!loaded)
+            return;
+
+        removeDocument(doc.id);
+        documents.put(doc.id, doc);
+        doc.terms.forEach((term, weight) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(doc.id, weight));
+    }
+
+    private void removeDocument(int id) {
+        Document doc = documents.remove(id);
+        if (doc == null)
+            return;
+
+        for (String term : doc.terms.keySet()) {
+            postings.computeIfPresent(term, (k, docs) -> {
+                docs.remove(id);
+                return docs.isEmpty() ? null : docs;
+            });
+        }
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find())
+            words.add(matcher.group().toLowerCase());
+        return words;
+    }
+
+    private static String highlight(String text, Set<String> terms) {
+        StringBuilder result = new StringBuilder();
+        Matcher matcher = WORD.matcher(text);
+        int last = 0;
+
+        while (matcher.find()) {
+            if (terms.contains(matcher.group().toLowerCase())) {
+                result.append(text, last, matcher.start()).append("<b>").append(matcher.group()).append("</b>");
+                last = matcher.end();
+            }
+        }
+
+        return result.append(text.substring(last)).toString();
+    }
+
+    // Fragment of about SNIPPET_WORDS words starting shortly before the first matched word
+    private static String snippet(String text, Set<String> terms) {
+        List<int[]> bounds = new ArrayList<>();
+        int first = -1;
+
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            if (first < 0 && terms.contains(matcher.group().toLowerCase()))
+                first = bounds.size();
+            bounds.add(new int[] {matcher.start(), matcher.end()});
+        }
+
+        if (bounds.isEmpty())
+            return text;
+
+        int from = Math.max(0, first - SNIPPET_WORDS_BEFORE);
+        int to = Math.min(bounds.size(), from + SNIPPET_WORDS);
+        String fragment = text.substring(from == 0 ? 0 : bounds.get(from)[0], to == bounds.size() ? text.length() : bounds.get(to - 1)[1]);
+
+        return (from > 0 ? "... " : "") + highlight(fragment, terms) + (to < bounds.size() ? " ..." : "");
+    }
+
+    private static class Document {
+        private final int id;
+        private final String name;
+        private final int publicationYear;
+        private final String annotation;
+        private final Map<String, Double> terms = new HashMap<>();
+
+        Document(Book book) {
+            this(book.getId(), book.getName(), book.getPublicationYear(), book.getAnnotation());
+        }
+
+        Document(int id, String name, int publicationYear, String annotation) {
+            this.id = id;
+            this.name = name;
+            this.publicationYear = publicationYear;
+            this.annotation = annotation;
+
+            words(name).forEach(word -> terms.merge(word, NAME_WEIGHT, Double::sum));
+            words(annotation).forEach(word -> terms.merge(word, ANNOTATION_WEIGHT, Double::sum));
+        }
+    }
+}
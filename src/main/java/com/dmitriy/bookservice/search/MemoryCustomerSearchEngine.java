@@ -0,0 +1,175 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.cache.AfterCommit;
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.CustomerSearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// In-process trigram index ranked by the pg_trgm similarity, loaded by the first search and updated after commit
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "memory")
+public class MemoryCustomerSearchEngine implements CustomerSearchEngine {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    @Value("${search.customers.similarity-threshold:0.3}")
+    private double similarityThreshold;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    // Trigram -> IDs of customers whose name contains it
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+
+    private volatile boolean loaded;
+
+    @Override
+    public List<CustomerSearchHit> search(String name, int limit) {
+        Set<String> query = trigrams(name);
+        if (query.isEmpty())
+            return Collections.emptyList();
+
+        if (!loaded)
+            write(() -> {
+                if (!loaded)
+                    load();
+            });
+
+        // Worst hit on top, so the queue keeps the best "limit" hits
+        PriorityQueue<CustomerSearchHit> hits = new PriorityQueue<>(Comparator.comparingDouble(CustomerSearchHit::getSimilarity)
+                .thenComparing(Comparator.comparingInt(CustomerSearchHit::getId).reversed()));
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String trigram : query) {
+                for (Integer id : postings.getOrDefault(trigram, Collections.emptySet()))
+                    shared.merge(id, 1, Integer::sum);
+            }
+
+            for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+                Document doc = documents.get(candidate.getKey());
+                double similarity = (double)candidate.getValue() / (query.size() + doc.trigrams.size() - candidate.getValue());
+                if (similarity < similarityThreshold)
+                    continue;
+
+                hits.add(new CustomerSearchHit(doc.id, doc.name, doc.phone, similarity));
+                if (hits.size() > limit)
+                    hits.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<CustomerSearchHit> result = new ArrayList<>(hits);
+        result.sort(hits.comparator().reversed());
+        return result;
+    }
+
+    @Override
+    public void index(Collection<Customer> customers) {
+        List<Document> docs = customers.stream()
+                .map(customer -> new Document(customer.getId(), customer.getName(), customer.getPhone()))
+                .collect(Collectors.toList());
+        AfterCommit.runAfterCommit(() -> write(() -> docs.forEach(this::put)));
+    }
+
+    @Override
+    public void remove(Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>(ids);
+        AfterCommit.runAfterCommit(() -> write(() -> removed.forEach(this::removeDocument)));
+    }
+
+    // Runs under the write lock, so the writes committed while the table is read are applied after the load
+    private void load() {
+        List<Document> docs = jdbcTemplate.query("select id, name, phone from customers",
+                (rs, i) -> new Document(rs.getInt(1), rs.getString(2), rs.getString(3)));
+
+        documents.clear();
+        postings.clear();
+        loaded = true;
+        docs.forEach(this::put);
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Writes before the first load are skipped, the load reads them from the database
+    private void put(Document doc) {
+        if (!loaded)
+            return;
+
+        removeDocument(doc.id);
+        documents.put(doc.id, doc);
+        doc.trigrams.forEach(trigram -> postings.computeIfAbsent(trigram, k -> new HashSet<>()).add(doc.id));
+    }
+
+    private void removeDocument(int id) {
+        Document doc = documents.remove(id);
+        if (doc == null)
+            return;
+
+        for (String trigram : doc.trigrams) {
+            postings.computeIfPresent(trigram, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Every word is padded with two spaces in front and one behind, as in pg_trgm
+    static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        Matcher matcher = WORD.matcher(text.toLowerCase());
+        while (matcher.find()) {
+            String word = "  " + matcher.group() + " ";
+            for (int i = 0; i + 3 <= word.length(); i++)
+                result.add(word.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static class Document {
+        private final int id;
+        private final String name;
+        private final String phone;
+        private final Set<String> trigrams;
+
+        Document(int id, String name, String phone) {
+            this.id = id;
+            this.name = name;
+            this.phone = phone;
+            this.trigrams = trigrams(name);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.cache.AfterCommit;
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.NameSuggestion;
+import com.dmitriy.bookservice.repository.AuthorRepository;
+import com.dmitriy.bookservice.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Autocomplete of author and book names, loaded on startup or by the first lookup and updated after commit
+@Component
+public class NameSuggestions {
+
+    private static final Logger log = LoggerFactory.getLogger(NameSuggestions.class);
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final PrefixIndex authors = new PrefixIndex();
+
+    private final PrefixIndex books = new PrefixIndex();
+
+    private volatile boolean loaded;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            load();
+        } catch (DataAccessException ex) {
+            log.warn("Name suggestions are not loaded on startup: {}", ex.getMessage());
+        }
+    }
+
+    public List<NameSuggestion> suggestAuthors(String prefix, int limit) {
+        return index(authors).suggest(prefix, limit);
+    }
+
+    public List<NameSuggestion> suggestBooks(String prefix, int limit) {
+        return index(books).suggest(prefix, limit);
+    }
+
+    public void indexAuthors(Collection<Author> written) {
+        List<NameSuggestion> entries = written.stream()
+                .map(author -> new NameSuggestion(author.getId(), author.getFullName()))
+                .collect(Collectors.toList());
+        put(authors, entries);
+    }
+
+    public void removeAuthors(Collection<Integer> ids) {
+        remove(authors, ids);
+    }
+
+    public void indexBooks(Collection<Book> written) {
+        List<NameSuggestion> entries = written.stream()
+                .map(book -> new NameSuggestion(book.getId(), book.getName()))
+                .collect(Collectors.toList());
+        put(books, entries);
+    }
+
+    public void removeBooks(Collection<Integer> ids) {
+        remove(books, ids);
+    }
+
+    public void rebuild() {
+        AfterCommit.runAfterCommit(this::load);
+    }
+
+    private PrefixIndex index(PrefixIndex index) {
+        if (!loaded)
+            loadOnce();
+        return index;
+    }
+
+    private synchronized void loadOnce() {
+        if (!loaded)
+            load();
+    }
+
+    // The names are read under the monitor, so the writes committed meanwhile are applied after the load
+    private synchronized void load() {
+        authors.replaceAll(authorRepository.findNames());
+        books.replaceAll(bookRepository.findNames());
+        loaded = true;
+    }
+
+    // Writes before the first load are skipped, the load reads them from the database
+    private void put(PrefixIndex index, List<NameSuggestion> entries) {
+        AfterCommit.runAfterCommit(() -> {
+            synchronized (this) {
+                if (loaded)
+                    entries.forEach(entry -> index.put(entry.getId(), entry.getName()));
+            }
+        });
+    }
+
+    private void remove(PrefixIndex index, Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>(ids);
+        AfterCommit.runAfterCommit(() -> {
+            synchronized (this) {
+                if (loaded)
+                    removed.forEach(index::remove);
+            }
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.projection.BookSearchHit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Searches the generated books.search_vector column through its GIN index
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresBookSearchEngine implements BookSearchEngine {
+
+    // Headlines are built only for the rows of the page
+    private static final String SEARCH =
+            "with q as (select websearch_to_tsquery('english', ?) as query), " +
+            "hits as (select b.id, b.name, b.publicationYear, b.annotation, ts_rank(b.search_vector, q.query) as rank " +
+                    "from books b, q where b.search_vector @@ q.query " +
+                    "order by rank desc, b.id limit ? offset ?) " +
+            "select h.id, h.name, h.publicationYear, h.rank, " +
+                    "ts_headline('english', h.name, q.query, 'HighlightAll=true'), " +
+                    "ts_headline('english', h.annotation, q.query, 'MaxFragments=2, MaxWords=20, MinWords=5') " +
+            "from hits h, q order by h.rank desc, h.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<BookSearchHit> search(String query, int offset, int limit) {
+        return jdbcTemplate.query(SEARCH, (rs, i) -> new BookSearchHit(rs.getInt(1), rs.getString(2), rs.getInt(3),
+                rs.getDouble(4), rs.getString(5), rs.getString(6)), query, limit, offset);
+    }
+}
@@ -0,0 +1,45 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.projection.CustomerSearchHit;
+import com.dmitriy.bookservice.service.ReadOnlyTransactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Ranks the "candidates" nearest names found by a KNN scan of the pg_trgm GiST index
+@Component
+@ConditionalOnProperty(name = "search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresCustomerSearchEngine implements CustomerSearchEngine {
+
+    private static final String SETTINGS =
+            "select set_config('pg_trgm.similarity_threshold', ?, true), set_config('statement_timeout', ?, true)";
+
+    private static final String SEARCH =
+            "with candidates as (select id, name, phone from customers where name % ? order by name <-> ? limit ?) " +
+            "select id, name, phone, similarity(name, ?) as sml from candidates order by sml desc, id limit ?";
+
+    @Value("${search.customers.similarity-threshold:0.3}")
+    private double similarityThreshold;
+
+    @Value("${search.customers.candidates:1000}")
+    private int candidates;
+
+    @Value("${search.customers.timeout:2000}")
+    private int timeout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ReadOnlyTransactional
+    @Override
+    public List<CustomerSearchHit> search(String name, int limit) {
+        jdbcTemplate.query(SETTINGS, rs -> {}, String.valueOf(similarityThreshold), String.valueOf(timeout));
+
+        return jdbcTemplate.query(SEARCH, (rs, i) -> new CustomerSearchHit(rs.getInt(1), rs.getString(2), rs.getString(3),
+                rs.getDouble(4)), name, name, Math.max(candidates, limit), name, limit);
+    }
+}
@@ -0,0 +1,101 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.projection.NameSuggestion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Sorted name tails starting at every word, looked up by a range scan from the prefix without locking
+public class PrefixIndex {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Separates the name tail from the ID, sorts below every other character
+    private static final char SEPARATOR = '\0';
+
+    // Replaced as a whole, so readers never see a partially rebuilt index
+    private volatile Entries entries = new Entries();
+
+    public List<NameSuggestion> suggest(String prefix, int limit) {
+        Entries current = entries;
+        String from = normalize(prefix);
+        Set<Integer> ids = new LinkedHashSet<>();
+
+        for (Map.Entry<String, Integer> entry : current.keys.tailMap(from).entrySet()) {
+            if (ids.size() == limit || !entry.getKey().startsWith(from))
+                break;
+
+            ids.add(entry.getValue());
+        }
+
+        List<NameSuggestion> result = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            String name = current.names.get(id);
+            if (name != null)
+                result.add(new NameSuggestion(id, name));
+        }
+        return result;
+    }
+
+    public synchronized void put(int id, String name) {
+        entries.put(id, name);
+    }
+
+    public synchronized void remove(int id) {
+        entries.remove(id);
+    }
+
+    public synchronized void replaceAll(Collection<NameSuggestion> all) {
+        Entries replaced = new Entries();
+        all.forEach(entry -> replaced.put(entry.getId(), entry.getName()));
+        entries = replaced;
+    }
+
+    public int size() {
+        return entries.names.size();
+    }
+
+    private static List<String> keys(int id, String name) {
+        String normalized = normalize(name);
+        List<String> result = new ArrayList<>();
+
+        Matcher matcher = WORD.matcher(normalized);
+        while (matcher.find())
+            result.add(normalized.substring(matcher.start()) + SEPARATOR + id);
+
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    private static class Entries {
+        private final NavigableMap<String, Integer> keys = new ConcurrentSkipListMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        void put(int id, String name) {
+            remove(id);
+            if (name == null)
+                return;
+
+            names.put(id, name);
+            keys(id, name).forEach(key -> keys.put(key, id));
+        }
+
+        void remove(int id) {
+            String name = names.remove(id);
+            if (name != null)
+                keys(id, name).forEach(keys::remove);
+        }
+    }
+}
@@ -2,12 +2,28 @@ package com.dmitriy.bookservice.service;
 
 import com.dmitriy.bookservice.model.Author;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
 public interface AuthorService {
     Author add(Author author);
     void update(Author author);
+    void update(Author author, String ifMatch);
     void delete(int id);
 
+    List<Integer> addAll(InputStream in);
+    void updateAll(InputStream in);
+    void deleteAll(InputStream in);
+
     String findById(int id);
+    String versionTag(int id);
+    String listVersionTag();
+    String findByIds(Collection<Integer> ids);
     String findByFullName(String fullName);
     String findAll();
+    String findPage(int afterId, int limit);
+    String suggest(String prefix, int limit);
+    void streamAll(OutputStream out);
 }
@@ -1,16 +1,37 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
 import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.BatchResult;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.AuthorWithBooks;
+import com.dmitriy.bookservice.projection.BookView;
 import com.dmitriy.bookservice.repository.AuthorRepository;
+import com.dmitriy.bookservice.search.NameSuggestions;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AuthorServiceImpl implements AuthorService {
@@ -18,6 +39,24 @@ public class AuthorServiceImpl implements AuthorService {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private JsonCache jsonCache;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private NameSuggestions nameSuggestions;
+
+    @Autowired
+    private TableRevisions tableRevisions;
+
+    @Autowired
+    private VersionedUpdates versionedUpdates;
+
     @Autowired
     @Qualifier("mapperWithoutBooksRef")
     private ObjectMapper mapperWithoutBooksRef;
@@ -29,22 +68,60 @@ public class AuthorServiceImpl implements AuthorService {
     @Transactional
     @Override
     public String findById(int id) {
-        Optional<Author> author = authorRepository.findById(id);
+        return jsonCache.get(Author.class, "mapperWithoutAuthorsRef", id, dependencies -> {
+            Optional<AuthorWithBooks> author = authorRepository.findById(id).map(Projections::of);
+
+            if (!author.isPresent())
+                throw new IllegalStateException("Author (id = " + id + ") not found");
+
+            author.get().getBooks().forEach(book -> dependencies.add(Book.class, book.getId()));
 
-        if (!author.isPresent())
-            throw new IllegalStateException("Author (id = " + id + ") not found");
+            dependencies.tag(VersionTags.of(authorRepository.probeVersions(id)));
 
+            try {
+                return mapperWithoutAuthorsRef.writeValueAsString(author.get());
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed convert Author to JSON: " + ex.getMessage());
+            }
+        });
+    }
+
+    @Transactional
+    @Override
+    public String versionTag(int id) {
+        return jsonCache.tag(Author.class, "mapperWithoutAuthorsRef", id, () -> {
+            String tag = VersionTags.of(authorRepository.probeVersions(id));
+            if (tag == null)
+                throw new IllegalStateException("Author (id = " + id + ") not found");
+
+            return tag;
+        });
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String listVersionTag() {
+        return tableRevisions.tag("authors");
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String findByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = BatchResult.checkIds(ids);
+        List<AuthorWithBooks> list = distinct.isEmpty() ? new ArrayList<>() : authorRepository.findDetailsByIds(distinct);
+        attachBooks(list);
         try {
-            return mapperWithoutAuthorsRef.writeValueAsString(author.get());
+            return mapperWithoutAuthorsRef.writeValueAsString(BatchResult.of(distinct, list, AuthorView::getId));
         } catch (JsonProcessingException ex) {
             throw new IllegalStateException("Failed convert Author to JSON: " + ex.getMessage());
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findByFullName(String fullName) {
-        List<Author> list = authorRepository.findByFullName(fullName);
+        List<AuthorWithBooks> list = authorRepository.findDetailsByFullName(fullName);
+        attachBooks(list);
         try {
             return mapperWithoutAuthorsRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -52,10 +129,10 @@ public class AuthorServiceImpl implements AuthorService {
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findAll() {
-        Iterable<Author> list = authorRepository.findAll();
+        List<AuthorView> list = authorRepository.findViews();
         try {
             return mapperWithoutBooksRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -63,27 +140,172 @@ public class AuthorServiceImpl implements AuthorService {
         }
     }
 
+    @ReadOnlyTransactional
+    @Override
+    public String findPage(int afterId, int limit) {
+        List<AuthorView> rows = authorRepository.findViewsByIdGreaterThan(afterId,
+                PageRequest.of(0, KeysetPage.checkLimit(limit) + 1));
+        try {
+            return mapperWithoutBooksRef.writeValueAsString(KeysetPage.of(rows, limit, AuthorView::getId));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Author to JSON: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String suggest(String prefix, int limit) {
+        if (prefix.trim().isEmpty())
+            throw new IllegalArgumentException("Suggestion prefix must not be empty");
+
+        try {
+            return mapperWithoutBooksRef.writeValueAsString(nameSuggestions.suggestAuthors(prefix, KeysetPage.checkLimit(limit)));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Author to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public void streamAll(OutputStream out) {
+        try (Stream<AuthorView> authors = authorRepository.streamAll()) {
+            JsonStreams.writeArray(mapperWithoutBooksRef, authors, out);
+        }
+    }
+
     @Transactional
     @Override
     public Author add(Author author) {
         if (author.getId() != 0)
             throw new IllegalArgumentException("ID of new author generate automatically and must be equal 0 or absent");
 
-        return authorRepository.save(author);
+        Author saved = authorRepository.save(author);
+        nameSuggestions.indexAuthors(Collections.singleton(saved));
+        entityCacheEvictor.evictCollections(Book.class, "authors", bookIds(author));
+        jsonCache.invalidate(Book.class, bookIds(author));
+        return saved;
     }
 
     @Transactional
     @Override
     public void update(Author author) {
-        if (!authorRepository.existsById(author.getId()))
-            throw new IllegalArgumentException("Author (id = " + author.getId() + ") not found");
+        update(author, null);
+    }
 
-        authorRepository.save(author);
+    @Transactional
+    @Override
+    public void update(Author author, String ifMatch) {
+        versionedUpdates.update(author, VersionTags.version(ifMatch));
+        versionedUpdates.replaceLinks("books_authors", "author_id", author.getId(), "book_id", bookIds(author));
+        nameSuggestions.indexAuthors(Collections.singleton(author));
+
+        // Previous books are not read, their documents depend on the author and their collections are evicted by role
+        entityCacheEvictor.evictEntity(Author.class, author.getId());
+        entityCacheEvictor.evictCollections(Author.class, "books", Collections.singleton(author.getId()));
+        entityCacheEvictor.evictCollections(Book.class, "authors");
+        jsonCache.invalidate(Author.class, author.getId());
+        jsonCache.invalidate(Book.class, bookIds(author));
     }
 
     @Transactional
     @Override
     public void delete(int id) {
+        authorRepository.findById(id).ifPresent(author ->
+                entityCacheEvictor.evictCollections(Book.class, "authors", bookIds(author)));
+
         authorRepository.deleteById(id);
+        nameSuggestions.removeAuthors(Collections.singleton(id));
+        jsonCache.invalidate(Author.class, id);
+    }
+
+    @Transactional
+    @Override
+    public List<Integer> addAll(InputStream in) {
+        List<Integer> ids = new ArrayList<>();
+        Set<Integer> bookIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Author.class, authors -> {
+            for (Author author : authors) {
+                if (author.getId() != 0)
+                    throw new IllegalArgumentException("ID of new author generate automatically and must be equal 0 or absent");
+
+                ids.add(authorRepository.save(author).getId());
+                bookIds.addAll(bookIds(author));
+            }
+
+            nameSuggestions.indexAuthors(authors);
+        });
+
+        entityCacheEvictor.evictCollections(Book.class, "authors", bookIds);
+        jsonCache.invalidate(Book.class, bookIds);
+        return ids;
+    }
+
+    @Transactional
+    @Override
+    public void updateAll(InputStream in) {
+        Set<Integer> authorIds = new HashSet<>();
+        Set<Integer> bookIds = new HashSet<>();
+
+        bulkWriter.forEachVersionedChunk(in, Author.class, Author::setVersion, authors -> {
+            Map<Integer, Author> old = findAllById(authors.stream().map(Author::getId).collect(Collectors.toList()));
+
+            for (Author author : authors) {
+                VersionTags.check("Author", author.getId(), author.getVersion(), old.get(author.getId()).getVersion());
+                bookIds.addAll(bookIds(old.get(author.getId())));
+                bookIds.addAll(bookIds(author));
+                authorIds.add(author.getId());
+            }
+
+            authorRepository.saveAll(authors);
+            nameSuggestions.indexAuthors(authors);
+        });
+
+        entityCacheEvictor.evictCollections(Book.class, "authors", bookIds);
+        jsonCache.invalidate(Author.class, authorIds);
+        jsonCache.invalidate(Book.class, bookIds);
+    }
+
+    @Transactional
+    @Override
+    public void deleteAll(InputStream in) {
+        Set<Integer> authorIds = new HashSet<>();
+        Set<Integer> bookIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Integer.class, ids -> {
+            Map<Integer, Author> authors = findAllById(ids);
+
+            authors.values().forEach(author -> bookIds.addAll(bookIds(author)));
+            authorIds.addAll(authors.keySet());
+
+            authorRepository.deleteAll(authors.values());
+            nameSuggestions.removeAuthors(authors.keySet());
+        });
+
+        entityCacheEvictor.evictCollections(Book.class, "authors", bookIds);
+        jsonCache.invalidate(Author.class, authorIds);
+    }
+
+    private Map<Integer, Author> findAllById(List<Integer> ids) {
+        Map<Integer, Author> authors = new HashMap<>();
+        authorRepository.findAllById(ids).forEach(author -> authors.put(author.getId(), author));
+
+        for (Integer id : ids) {
+            if (!authors.containsKey(id))
+                throw new IllegalArgumentException("Author (id = " + id + ") not found");
+        }
+
+        return authors;
+    }
+
+    private void attachBooks(List<AuthorWithBooks> authors) {
+        if (authors.isEmpty())
+            return;
+
+        List<BookView> books = authorRepository.findBooksByAuthorIds(Projections.ids(authors, AuthorView::getId));
+        Projections.attach(authors, AuthorView::getId, AuthorWithBooks::getBooks, books, BookView::getOwnerId);
+    }
+
+    private static Set<Integer> bookIds(Author author) {
+        return author.getBooks().stream().map(Book::getId).collect(Collectors.toSet());
     }
 }
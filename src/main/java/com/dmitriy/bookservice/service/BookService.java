@@ -1,13 +1,32 @@
 package com.dmitriy.bookservice.service;
 
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.BookFilter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
 
 public interface BookService {
     Book add(Book book);
     void update(Book book);
+    void update(Book book, String ifMatch);
     void delete(int id);
 
+    List<Integer> addAll(InputStream in);
+    void updateAll(InputStream in);
+    void deleteAll(InputStream in);
+
     String findById(int id);
+    String versionTag(int id);
+    String listVersionTag();
+    String findByIds(Collection<Integer> ids);
     String findByName(String name);
     String findAll();
+    String findPage(int afterId, int limit);
+    String filter(BookFilter filter, int offset, int limit);
+    String search(String query, int offset, int limit);
+    String suggest(String prefix, int limit);
+    void streamAll(OutputStream out);
 }
@@ -1,16 +1,42 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.BatchResult;
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.BookFilter;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.model.SearchPage;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.BookSearchHit;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
 import com.dmitriy.bookservice.repository.BookRepository;
+import com.dmitriy.bookservice.search.BookSearchEngine;
+import com.dmitriy.bookservice.search.NameSuggestions;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
@@ -18,6 +44,30 @@ public class BookServiceImpl implements BookService {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private JsonCache jsonCache;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired
+    private BookSearchEngine bookSearchEngine;
+
+    @Autowired
+    private NameSuggestions nameSuggestions;
+
+    @Autowired
+    private TableRevisions tableRevisions;
+
+    @Autowired
+    private VersionedUpdates versionedUpdates;
+
     @Autowired
     @Qualifier("mapperWithoutBooksRef")
     private ObjectMapper mapperWithoutBooksRef;
@@ -29,22 +79,60 @@ public class BookServiceImpl implements BookService {
     @Transactional
     @Override
     public String findById(int id) {
-        Optional<Book> book = bookRepository.findById(id);
+        return jsonCache.get(Book.class, "mapperWithoutBooksRef", id, dependencies -> {
+            Optional<BookWithAuthors> book = bookRepository.findById(id).map(Projections::of);
+
+            if (!book.isPresent())
+                throw new IllegalStateException("Book (id = " + id + ") not found");
+
+            book.get().getAuthors().forEach(author -> dependencies.add(Author.class, author.getId()));
 
-        if (!book.isPresent())
-            throw new IllegalStateException("Book (id = " + id + ") not found");
+            dependencies.tag(VersionTags.of(bookRepository.probeVersions(id)));
 
+            try {
+                return mapperWithoutBooksRef.writeValueAsString(book.get());
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
+            }
+        });
+    }
+
+    @Transactional
+    @Override
+    public String versionTag(int id) {
+        return jsonCache.tag(Book.class, "mapperWithoutBooksRef", id, () -> {
+            String tag = VersionTags.of(bookRepository.probeVersions(id));
+            if (tag == null)
+                throw new IllegalStateException("Book (id = " + id + ") not found");
+
+            return tag;
+        });
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String listVersionTag() {
+        return tableRevisions.tag("books");
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String findByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = BatchResult.checkIds(ids);
+        List<BookWithAuthors> list = distinct.isEmpty() ? new ArrayList<>() : bookRepository.findDetailsByIds(distinct);
+        attachAuthors(list);
         try {
-            return mapperWithoutBooksRef.writeValueAsString(book.get());
+            return mapperWithoutBooksRef.writeValueAsString(BatchResult.of(distinct, list, BookView::getId));
         } catch (JsonProcessingException ex) {
             throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findByName(String name) {
-        List<Book> list = bookRepository.findByName(name);
+        List<BookWithAuthors> list = bookRepository.findDetailsByName(name);
+        attachAuthors(list);
         try {
             return mapperWithoutBooksRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -52,10 +140,10 @@ public class BookServiceImpl implements BookService {
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findAll() {
-        Iterable<Book> list = bookRepository.findAll();
+        List<BookView> list = bookRepository.findViews();
         try {
             return mapperWithoutAuthorsRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -63,27 +151,212 @@ public class BookServiceImpl implements BookService {
         }
     }
 
+    @ReadOnlyTransactional
+    @Override
+    public String findPage(int afterId, int limit) {
+        List<BookView> rows = bookRepository.findViewsByIdGreaterThan(afterId,
+                PageRequest.of(0, KeysetPage.checkLimit(limit) + 1));
+        try {
+            return mapperWithoutAuthorsRef.writeValueAsString(KeysetPage.of(rows, limit, BookView::getId));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String filter(BookFilter filter, int offset, int limit) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Page offset must not be negative");
+
+        List<BookView> rows = bookRepository.filterViews(filter, offset, KeysetPage.checkLimit(limit) + 1);
+        try {
+            return mapperWithoutAuthorsRef.writeValueAsString(SearchPage.of(rows, offset, limit));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String search(String query, int offset, int limit) {
+        if (query.trim().isEmpty())
+            throw new IllegalArgumentException("Search query must not be empty");
+
+        if (offset < 0)
+            throw new IllegalArgumentException("Page offset must not be negative");
+
+        List<BookSearchHit> rows = bookSearchEngine.search(query, offset, KeysetPage.checkLimit(limit) + 1);
+        try {
+            return mapperWithoutAuthorsRef.writeValueAsString(SearchPage.of(rows, offset, limit));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String suggest(String prefix, int limit) {
+        if (prefix.trim().isEmpty())
+            throw new IllegalArgumentException("Suggestion prefix must not be empty");
+
+        try {
+            return mapperWithoutAuthorsRef.writeValueAsString(nameSuggestions.suggestBooks(prefix, KeysetPage.checkLimit(limit)));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Book to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public void streamAll(OutputStream out) {
+        try (Stream<BookView> books = bookRepository.streamAll()) {
+            JsonStreams.writeArray(mapperWithoutAuthorsRef, books, out);
+        }
+    }
+
     @Transactional
     @Override
     public Book add(Book book) {
         if (book.getId() != 0)
             throw new IllegalArgumentException("ID of new book generate automatically and must be equal 0 or absent");
 
-        return bookRepository.save(book);
+        Book saved = bookRepository.save(book);
+        bookSearchEngine.index(Collections.singleton(saved));
+        nameSuggestions.indexBooks(Collections.singleton(saved));
+        entityCacheEvictor.evictCollections(Author.class, "books", authorIds(book));
+        jsonCache.invalidate(Author.class, authorIds(book));
+        return saved;
     }
 
     @Transactional
     @Override
     public void update(Book book) {
-        if (!bookRepository.existsById(book.getId()))
-            throw new IllegalArgumentException("Book (id = " + book.getId() + ") not found");
+        update(book, null);
+    }
+
+    @Transactional
+    @Override
+    public void update(Book book, String ifMatch) {
+        versionedUpdates.update(book, VersionTags.version(ifMatch));
+        versionedUpdates.replaceLinks("books_authors", "book_id", book.getId(), "author_id", authorIds(book));
+        bookSearchEngine.index(Collections.singleton(book));
+        nameSuggestions.indexBooks(Collections.singleton(book));
 
-        bookRepository.save(book);
+        // Previous authors are not read, their documents depend on the book and their collections are evicted by role
+        entityCacheEvictor.evictEntity(Book.class, book.getId());
+        entityCacheEvictor.evictCollections(Book.class, "authors", Collections.singleton(book.getId()));
+        entityCacheEvictor.evictCollections(Author.class, "books");
+        jsonCache.invalidate(Book.class, book.getId());
+        jsonCache.invalidate(Author.class, authorIds(book));
     }
 
     @Transactional
     @Override
     public void delete(int id) {
+        bookRepository.findById(id).ifPresent(book ->
+                entityCacheEvictor.evictCollections(Author.class, "books", authorIds(book)));
+
+        orderRollups.removeBooks(Collections.singleton(id));
         bookRepository.deleteById(id);
+        bookSearchEngine.remove(Collections.singleton(id));
+        nameSuggestions.removeBooks(Collections.singleton(id));
+        entityCacheEvictor.evictCollections(Order.class, "books");
+        jsonCache.invalidate(Book.class, id);
+    }
+
+    @Transactional
+    @Override
+    public List<Integer> addAll(InputStream in) {
+        List<Integer> ids = new ArrayList<>();
+        Set<Integer> authorIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Book.class, books -> {
+            for (Book book : books) {
+                if (book.getId() != 0)
+                    throw new IllegalArgumentException("ID of new book generate automatically and must be equal 0 or absent");
+
+                ids.add(bookRepository.save(book).getId());
+                authorIds.addAll(authorIds(book));
+            }
+
+            bookSearchEngine.index(books);
+            nameSuggestions.indexBooks(books);
+        });
+
+        entityCacheEvictor.evictCollections(Author.class, "books", authorIds);
+        jsonCache.invalidate(Author.class, authorIds);
+        return ids;
+    }
+
+    @Transactional
+    @Override
+    public void updateAll(InputStream in) {
+        Set<Integer> bookIds = new HashSet<>();
+        Set<Integer> authorIds = new HashSet<>();
+
+        bulkWriter.forEachVersionedChunk(in, Book.class, Book::setVersion, books -> {
+            Map<Integer, Book> old = findAllById(books.stream().map(Book::getId).collect(Collectors.toList()));
+
+            for (Book book : books) {
+                VersionTags.check("Book", book.getId(), book.getVersion(), old.get(book.getId()).getVersion());
+                authorIds.addAll(authorIds(old.get(book.getId())));
+                authorIds.addAll(authorIds(book));
+                bookIds.add(book.getId());
+            }
+
+            bookRepository.saveAll(books);
+            bookSearchEngine.index(books);
+            nameSuggestions.indexBooks(books);
+        });
+
+        entityCacheEvictor.evictCollections(Author.class, "books", authorIds);
+        jsonCache.invalidate(Book.class, bookIds);
+        jsonCache.invalidate(Author.class, authorIds);
+    }
+
+    @Transactional
+    @Override
+    public void deleteAll(InputStream in) {
+        Set<Integer> bookIds = new HashSet<>();
+        Set<Integer> authorIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Integer.class, ids -> {
+            Map<Integer, Book> books = findAllById(ids);
+
+            books.values().forEach(book -> authorIds.addAll(authorIds(book)));
+            bookIds.addAll(books.keySet());
+
+            orderRollups.removeBooks(books.keySet());
+            bookRepository.deleteAll(books.values());
+            bookSearchEngine.remove(books.keySet());
+            nameSuggestions.removeBooks(books.keySet());
+        });
+
+        entityCacheEvictor.evictCollections(Author.class, "books", authorIds);
+        entityCacheEvictor.evictCollections(Order.class, "books");
+        jsonCache.invalidate(Book.class, bookIds);
+    }
+
+    private Map<Integer, Book> findAllById(List<Integer> ids) {
+        Map<Integer, Book> books = new HashMap<>();
+        bookRepository.findAllById(ids).forEach(book -> books.put(book.getId(), book));
+
+        for (Integer id : ids) {
+            if (!books.containsKey(id))
+                throw new IllegalArgumentException("Book (id = " + id + ") not found");
+        }
+
+        return books;
+    }
+
+    private void attachAuthors(List<BookWithAuthors> books) {
+        if (books.isEmpty())
+            return;
+
+        List<AuthorView> authors = bookRepository.findAuthorsByBookIds(Projections.ids(books, BookView::getId));
+        Projections.attach(books, BookView::getId, BookWithAuthors::getAuthors, authors, AuthorView::getOwnerId);
+    }
+
+    private static Set<Integer> authorIds(Book book) {
+        return book.getAuthors().stream().map(Author::getId).collect(Collectors.toSet());
     }
 }
@@ -0,0 +1,60 @@
+package com.dmitriy.bookservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+// Flushes and clears the persistence context after every chunk of a bulk write
+@Component
+public class BulkWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Value("${hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    public <T> void forEachChunk(InputStream in, Class<T> type, Consumer<List<T>> action) {
+        JsonStreams.readArray(mapper, in, type, batchSize, chunk -> {
+            action.accept(chunk);
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    // Items of bulk updates carry the version they are based on, the version of the entity tag of the JSON view
+    public <T> void forEachVersionedChunk(InputStream in, Class<T> type, ObjIntConsumer<T> setVersion, Consumer<List<T>> action) {
+        forEachChunk(in, ObjectNode.class, nodes -> {
+            List<T> items = new ArrayList<>(nodes.size());
+            for (ObjectNode node : nodes) {
+                JsonNode version = node.remove("version");
+                if (version == null || !version.isInt())
+                    throw new IllegalArgumentException("Every updated item must have the version it is based on");
+
+                try {
+                    T item = mapper.treeToValue(node, type);
+                    setVersion.accept(item, version.intValue());
+                    items.add(item);
+                } catch (JsonProcessingException ex) {
+                    throw new IllegalArgumentException("Failed read JSON array: " + ex.getMessage());
+                }
+            }
+            action.accept(items);
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.dmitriy.bookservice.service;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Catalog feed: csv with one line per book-author link, or ndjson with one book and its authors per line
+final class CatalogFeed {
+
+    static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    static final CsvSchema ROW_SCHEMA = CSV_MAPPER.schemaFor(Row.class);
+
+    private CatalogFeed() {}
+
+    static Iterator<Row> rows(InputStream in, String format) {
+        try {
+            switch (format) {
+                case "csv":
+                    MappingIterator<Row> rows = CSV_MAPPER.readerFor(Row.class)
+                            .with(CsvSchema.emptySchema().withHeader())
+                            .readValues(in);
+                    return new Checked(rows);
+                case "ndjson":
+                    MappingIterator<Book> books = new ObjectMapper().readerFor(Book.class).readValues(in);
+                    return new Checked(new Flattened(books));
+                default:
+                    throw new IllegalArgumentException("Unknown catalog format \"" + format + "\", expected csv or ndjson");
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed read catalog: " + ex.getMessage());
+        }
+    }
+
+    @JsonPropertyOrder({"name", "publicationYear", "annotation", "authorFullName", "authorBirthYear"})
+    static class Row {
+        public String name;
+        public Integer publicationYear;
+        public String annotation;
+        public String authorFullName;
+        public Integer authorBirthYear;
+    }
+
+    static class Book {
+        public String name;
+        public Integer publicationYear;
+        public String annotation;
+        public List<Author> authors = new ArrayList<>();
+    }
+
+    static class Author {
+        public String fullName;
+        public Integer birthYear;
+    }
+
+    private static class Flattened implements Iterator<Row> {
+        private final Iterator<Book> books;
+        private Iterator<Row> current = Collections.emptyIterator();
+
+        Flattened(Iterator<Book> books) {
+            this.books = books;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && books.hasNext())
+                current = rows(books.next());
+            return current.hasNext();
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return current.next();
+        }
+
+        private static Iterator<Row> rows(Book book) {
+            List<Row> rows = new ArrayList<>();
+            List<Author> authors = book.authors == null || book.authors.isEmpty() ?
+                    Collections.singletonList(new Author()) : book.authors;
+
+            for (Author author : authors) {
+                Row row = new Row();
+                row.name = book.name;
+                row.publicationYear = book.publicationYear;
+                row.annotation = book.annotation;
+                row.authorFullName = author.fullName;
+                row.authorBirthYear = author.birthYear;
+                rows.add(row);
+            }
+
+            return rows.iterator();
+        }
+    }
+
+    private static class Checked implements Iterator<Row> {
+        private final Iterator<Row> rows;
+        private long number;
+
+        Checked(Iterator<Row> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return rows.hasNext();
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Failed read catalog row " + (number + 1) + ": " + ex.getMessage());
+            }
+        }
+
+        @Override
+        public Row next() {
+            Row row;
+            try {
+                row = rows.next();
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Failed read catalog row " + (number + 1) + ": " + ex.getMessage());
+            }
+            number++;
+
+            if (row.authorFullName != null && row.authorFullName.isEmpty())
+                row.authorFullName = null;
+
+            if (row.name == null || row.name.isEmpty() || row.annotation == null || row.annotation.isEmpty() ||
+                row.publicationYear == null)
+                throw new IllegalArgumentException("Catalog row " + number + ": name, publicationYear and annotation are required");
+
+            if ((row.authorFullName == null) != (row.authorBirthYear == null))
+                throw new IllegalArgumentException("Catalog row " + number + ": authorFullName and authorBirthYear must be both specified or both empty");
+
+            return row;
+        }
+    }
+}
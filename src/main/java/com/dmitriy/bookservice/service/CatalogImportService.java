@@ -0,0 +1,9 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.model.CatalogImportReport;
+
+import java.io.InputStream;
+
+public interface CatalogImportService {
+    CatalogImportReport importCatalog(InputStream in, String format);
+}
@@ -0,0 +1,248 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.CatalogImportReport;
+import com.dmitriy.bookservice.search.BookSearchEngine;
+import com.dmitriy.bookservice.search.NameSuggestions;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import javax.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Stages the feed with COPY (JDBC batches on other databases) and merges it with set-based SQL
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImportServiceImpl.class);
+
+    // Equal to allocationSize of the entity ID generators, imported rows take IDs from the same pooled sequences
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final long PROGRESS_STEP = 100000;
+
+    // Key of the transaction-level advisory lock that lets one import at a time use the shared staging tables
+    private static final long IMPORT_LOCK = 0x636174616c6f67L;
+
+    private static final String ROW_COLUMNS = "name, publicationYear, annotation, authorFullName, authorBirthYear";
+
+    private static final String UPDATE_BOOKS =
+            "update books set version = version + 1, annotation = (select max(r.annotation) from catalog_import_rows r " +
+                    "where r.name = books.name and r.publicationYear = books.publicationYear) " +
+            "where exists (select 1 from catalog_import_rows r " +
+                    "where r.name = books.name and r.publicationYear = books.publicationYear) " +
+            "and annotation <> (select max(r.annotation) from catalog_import_rows r " +
+                    "where r.name = books.name and r.publicationYear = books.publicationYear)";
+
+    private static final String SELECT_NEW_AUTHORS =
+            "insert into catalog_import_new_authors(fullName, birthYear) " +
+            "select distinct r.authorFullName, r.authorBirthYear from catalog_import_rows r " +
+            "where r.authorFullName is not null and not exists (select 1 from authors a " +
+                    "where a.fullName = r.authorFullName and a.birthYear = r.authorBirthYear)";
+
+    private static final String INSERT_NEW_AUTHORS =
+            "insert into authors(id, fullName, birthYear) " +
+            "select b.hi - " + (ID_BLOCK_SIZE - 1) + " + mod(n.rn - ?, " + ID_BLOCK_SIZE + "), n.fullName, n.birthYear " +
+            "from catalog_import_new_authors n join catalog_import_id_blocks b on b.block = (n.rn - ?) / " + ID_BLOCK_SIZE;
+
+    private static final String SELECT_NEW_BOOKS =
+            "insert into catalog_import_new_books(name, publicationYear, annotation) " +
+            "select r.name, r.publicationYear, max(r.annotation) from catalog_import_rows r " +
+            "where not exists (select 1 from books b where b.name = r.name and b.publicationYear = r.publicationYear) " +
+            "group by r.name, r.publicationYear";
+
+    private static final String INSERT_NEW_BOOKS =
+            "insert into books(id, name, publicationYear, annotation) " +
+            "select b.hi - " + (ID_BLOCK_SIZE - 1) + " + mod(n.rn - ?, " + ID_BLOCK_SIZE + "), n.name, n.publicationYear, n.annotation " +
+            "from catalog_import_new_books n join catalog_import_id_blocks b on b.block = (n.rn - ?) / " + ID_BLOCK_SIZE;
+
+    private static final String INSERT_LINKS =
+            "insert into books_authors(book_id, author_id) " +
+            "select distinct b.id, a.id from catalog_import_rows r " +
+            "join books b on b.name = r.name and b.publicationYear = r.publicationYear " +
+            "join authors a on a.fullName = r.authorFullName and a.birthYear = r.authorBirthYear " +
+            "where not exists (select 1 from books_authors l where l.book_id = b.id and l.author_id = a.id)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private JsonCache jsonCache;
+
+    @Autowired
+    private BookSearchEngine bookSearchEngine;
+
+    @Autowired
+    private NameSuggestions nameSuggestions;
+
+    @Value("${catalog.import.batch-size:1000}")
+    private int batchSize;
+
+    @Transactional
+    @Override
+    public CatalogImportReport importCatalog(InputStream in, String format) {
+        Iterator<CatalogFeed.Row> rows = CatalogFeed.rows(in, format);
+        CatalogImportReport report;
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            boolean postgres = connection.isWrapperFor(PGConnection.class);
+            if (postgres)
+                jdbcTemplate.queryForList("select pg_advisory_xact_lock(?)", IMPORT_LOCK);
+
+            long staged = postgres ? copyRows(connection.unwrap(PGConnection.class), rows) : insertRows(connection, rows);
+            log.info("Catalog import: {} rows staged", staged);
+            if (postgres)
+                jdbcTemplate.execute("analyze catalog_import_rows");
+
+            long booksUpdated = jdbcTemplate.update(UPDATE_BOOKS);
+            log.info("Catalog import: {} books updated", booksUpdated);
+
+            long authorsAdded = insertNew("catalog_import_new_authors", SELECT_NEW_AUTHORS, INSERT_NEW_AUTHORS,
+                    "authors_id_seq", postgres);
+            log.info("Catalog import: {} authors added", authorsAdded);
+
+            long booksAdded = insertNew("catalog_import_new_books", SELECT_NEW_BOOKS, INSERT_NEW_BOOKS,
+                    "books_id_seq", postgres);
+            log.info("Catalog import: {} books added", booksAdded);
+
+            long linksAdded = jdbcTemplate.update(INSERT_LINKS);
+            log.info("Catalog import: {} links added", linksAdded);
+
+            jdbcTemplate.update("delete from catalog_import_rows");
+            report = new CatalogImportReport(staged, authorsAdded, booksAdded, booksUpdated, linksAdded);
+        } catch (SQLException | IOException ex) {
+            throw new IllegalStateException("Failed import catalog: " + ex.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        entityCacheEvictor.evictEntities(Book.class);
+        entityCacheEvictor.evictEntities(Author.class);
+        entityCacheEvictor.evictCollections(Book.class, "authors");
+        entityCacheEvictor.evictCollections(Author.class, "books");
+        jsonCache.invalidateAll();
+        bookSearchEngine.rebuild();
+        nameSuggestions.rebuild();
+
+        return report;
+    }
+
+    private long copyRows(PGConnection connection, Iterator<CatalogFeed.Row> rows) throws SQLException, IOException {
+        long count = 0;
+        String sql = "copy catalog_import_rows (" + ROW_COLUMNS + ") from stdin with (format csv)";
+
+        try (PGCopyOutputStream out = new PGCopyOutputStream(connection, sql);
+             SequenceWriter writer = CatalogFeed.CSV_MAPPER.writer(CatalogFeed.ROW_SCHEMA).writeValues(out)) {
+            while (rows.hasNext()) {
+                writer.write(rows.next());
+                progress(++count);
+            }
+        }
+
+        return count;
+    }
+
+    private long insertRows(Connection connection, Iterator<CatalogFeed.Row> rows) throws SQLException {
+        long count = 0;
+        String sql = "insert into catalog_import_rows (" + ROW_COLUMNS + ") values (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            while (rows.hasNext()) {
+                CatalogFeed.Row row = rows.next();
+                statement.setString(1, row.name);
+                statement.setInt(2, row.publicationYear);
+                statement.setString(3, row.annotation);
+                statement.setString(4, row.authorFullName);
+                statement.setObject(5, row.authorBirthYear, Types.INTEGER);
+                statement.addBatch();
+
+                if (++count % batchSize == 0)
+                    statement.executeBatch();
+                progress(count);
+            }
+
+            statement.executeBatch();
+        }
+
+        return count;
+    }
+
+    // Numbers the new rows in a staging table, reserves ID blocks for them and inserts them into the target table
+    private long insertNew(String newTable, String selectNew, String insertNew, String sequence, boolean postgres) {
+        jdbcTemplate.update(selectNew);
+
+        long[] range = jdbcTemplate.queryForObject("select count(*), min(rn) from " + newTable,
+                (rs, i) -> new long[] {rs.getLong(1), rs.getLong(2)});
+        long count = range[0];
+        long firstRn = range[1];
+
+        long inserted = 0;
+        if (count > 0) {
+            List<Object[]> blocks = new ArrayList<>();
+            for (long hi : reserveIdBlocks(sequence, (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE, postgres))
+                blocks.add(new Object[] {blocks.size(), hi});
+
+            jdbcTemplate.batchUpdate("insert into catalog_import_id_blocks(block, hi) values (?, ?)", blocks);
+            inserted = jdbcTemplate.update(insertNew, firstRn, firstRn);
+            jdbcTemplate.update("delete from catalog_import_id_blocks");
+
+            if (inserted != count)
+                throw new IllegalStateException("Failed import catalog: " + inserted + " of " + count + " rows of " +
+                        newTable + " inserted");
+        }
+
+        jdbcTemplate.update("delete from " + newTable);
+        return inserted;
+    }
+
+    private List<Long> reserveIdBlocks(String sequence, long count, boolean postgres) {
+        List<Long> blocks = new ArrayList<>();
+
+        while (blocks.size() < count) {
+            long needed = count - blocks.size();
+            List<Long> values = postgres ?
+                    jdbcTemplate.queryForList("select nextval('" + sequence + "') from generate_series(1, ?)", Long.class, needed) :
+                    jdbcTemplate.queryForList("select nextval('" + sequence + "')", Long.class);
+
+            // The initial value of a sequence does not start a whole block
+            for (Long hi : values) {
+                if (hi >= ID_BLOCK_SIZE)
+                    blocks.add(hi);
+            }
+        }
+
+        return blocks;
+    }
+
+    private void progress(long count) {
+        if (count % PROGRESS_STEP == 0)
+            log.info("Catalog import: {} rows read", count);
+    }
+}
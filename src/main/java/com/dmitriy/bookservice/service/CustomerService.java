@@ -1,17 +1,34 @@
 package com.dmitriy.bookservice.service;
 
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.OrderReportRow;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 
 public interface CustomerService {
     Customer add(Customer customer);
     void update(Customer customer);
+    void update(Customer customer, String ifMatch);
     void delete(int id);
 
+    List<Integer> addAll(InputStream in);
+    void updateAll(InputStream in);
+    void deleteAll(InputStream in);
+
     String findById(int id);
+    String versionTag(int id);
+    String listVersionTag();
+    String findByIds(Collection<Integer> ids);
     String findByName(String name);
     String findAll();
+    String findPage(int afterId, int limit);
+    String search(String name, int limit);
+    void streamAll(OutputStream out);
 
-    Iterable<Object[]> reportOrders(Date startDate, Date endDate, Boolean onlyCompleted);
+    List<OrderReportRow> reportOrders(Date startDate, Date endDate, Boolean onlyCompleted);
+    void streamReportOrders(Date startDate, Date endDate, Boolean onlyCompleted, String format, OutputStream out);
 }
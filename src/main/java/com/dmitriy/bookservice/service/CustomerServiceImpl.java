@@ -1,17 +1,45 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
+import com.dmitriy.bookservice.cache.ReportCache;
+import com.dmitriy.bookservice.model.BatchResult;
+import com.dmitriy.bookservice.model.Book;
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.KeysetPage;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.CustomerSearchHit;
+import com.dmitriy.bookservice.projection.CustomerView;
+import com.dmitriy.bookservice.projection.CustomerWithOrders;
+import com.dmitriy.bookservice.projection.OrderReportRow;
+import com.dmitriy.bookservice.projection.OrderView;
+import com.dmitriy.bookservice.projection.OrderWithBooks;
 import com.dmitriy.bookservice.repository.CustomerRepository;
+import com.dmitriy.bookservice.repository.OrderRepository;
+import com.dmitriy.bookservice.search.CustomerSearchEngine;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CustomerServiceImpl implements CustomerService {
@@ -19,6 +47,30 @@ public class CustomerServiceImpl implements CustomerService {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private JsonCache jsonCache;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private CustomerSearchEngine customerSearchEngine;
+
+    @Autowired
+    private TableRevisions tableRevisions;
+
+    @Autowired
+    private VersionedUpdates versionedUpdates;
+
     @Autowired
     @Qualifier("mapperWithoutOrdersRef")
     private ObjectMapper mapperWithoutOrdersRef;
@@ -33,43 +85,159 @@ public class CustomerServiceImpl implements CustomerService {
         if (customer.getId() != 0)
             throw new IllegalArgumentException("ID of new customer generate automatically and must be equal 0 or absent");
 
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        customerSearchEngine.index(Collections.singleton(saved));
+        return saved;
     }
 
     @Transactional
     @Override
     public void update(Customer customer) {
-        if (!customerRepository.existsById(customer.getId()))
-            throw new IllegalArgumentException("Customer (id = " + customer.getId() + ") not found");
+        update(customer, null);
+    }
 
-        customerRepository.save(customer);
+    @Transactional
+    @Override
+    public void update(Customer customer, String ifMatch) {
+        versionedUpdates.update(customer, VersionTags.version(ifMatch));
+        customerSearchEngine.index(Collections.singleton(customer));
+        entityCacheEvictor.evictEntity(Customer.class, customer.getId());
+        jsonCache.invalidate(Customer.class, customer.getId());
+        reportCache.invalidateAll();
     }
 
     @Transactional
     @Override
     public void delete(int id) {
         customerRepository.deleteById(id);
+        customerSearchEngine.remove(Collections.singleton(id));
+
+        // Orders of the customer are removed by the database cascade
+        entityCacheEvictor.evictEntities(Order.class);
+        entityCacheEvictor.evictCollections(Order.class, "books");
+        jsonCache.invalidate(Customer.class, id);
+        reportCache.invalidateAll();
+    }
+
+    @Transactional
+    @Override
+    public List<Integer> addAll(InputStream in) {
+        List<Integer> ids = new ArrayList<>();
+
+        bulkWriter.forEachChunk(in, Customer.class, customers -> {
+            for (Customer customer : customers) {
+                if (customer.getId() != 0)
+                    throw new IllegalArgumentException("ID of new customer generate automatically and must be equal 0 or absent");
+
+                ids.add(customerRepository.save(customer).getId());
+            }
+
+            customerSearchEngine.index(customers);
+        });
+
+        return ids;
+    }
+
+    @Transactional
+    @Override
+    public void updateAll(InputStream in) {
+        Set<Integer> customerIds = new HashSet<>();
+
+        bulkWriter.forEachVersionedChunk(in, Customer.class, Customer::setVersion, customers -> {
+            List<Integer> ids = customers.stream().map(Customer::getId).collect(Collectors.toList());
+            Map<Integer, Customer> old = findAllById(ids);
+            customerIds.addAll(ids);
+
+            customers.forEach(customer ->
+                    VersionTags.check("Customer", customer.getId(), customer.getVersion(), old.get(customer.getId()).getVersion()));
+            customerRepository.saveAll(customers);
+            customerSearchEngine.index(customers);
+        });
+
+        jsonCache.invalidate(Customer.class, customerIds);
+        reportCache.invalidateAll();
+    }
+
+    @Transactional
+    @Override
+    public void deleteAll(InputStream in) {
+        Set<Integer> customerIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Integer.class, ids -> {
+            Map<Integer, Customer> customers = findAllById(ids);
+            customerIds.addAll(customers.keySet());
+
+            customerRepository.deleteAll(customers.values());
+            customerSearchEngine.remove(customers.keySet());
+        });
+
+        // Orders of the customers are removed by the database cascade
+        entityCacheEvictor.evictEntities(Order.class);
+        entityCacheEvictor.evictCollections(Order.class, "books");
+        jsonCache.invalidate(Customer.class, customerIds);
+        reportCache.invalidateAll();
     }
 
     @Transactional
     @Override
     public String findById(int id) {
-        Optional<Customer> customer = customerRepository.findById(id);
+        return jsonCache.get(Customer.class, "mapperWithoutAuthorsAndCustomerRef", id, dependencies -> {
+            Optional<CustomerWithOrders> customer = customerRepository.findById(id).map(Projections::of);
+
+            if (!customer.isPresent())
+                throw new IllegalStateException("Customer (id = " + id + ") not found");
+
+            for (OrderWithBooks order : customer.get().getOrders()) {
+                dependencies.add(Order.class, order.getId());
+                order.getBooks().forEach(book -> dependencies.add(Book.class, book.getId()));
+            }
+
+            dependencies.tag(VersionTags.of(customerRepository.probeVersions(id)));
+
+            try {
+                return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(customer.get());
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed convert Customer to JSON: " + ex.getMessage());
+            }
+        });
+    }
+
+    @Transactional
+    @Override
+    public String versionTag(int id) {
+        return jsonCache.tag(Customer.class, "mapperWithoutAuthorsAndCustomerRef", id, () -> {
+            String tag = VersionTags.of(customerRepository.probeVersions(id));
+            if (tag == null)
+                throw new IllegalStateException("Customer (id = " + id + ") not found");
+
+            return tag;
+        });
+    }
 
-        if (!customer.isPresent())
-            throw new IllegalStateException("Customer (id = " + id + ") not found");
+    @ReadOnlyTransactional
+    @Override
+    public String listVersionTag() {
+        return tableRevisions.tag("customers");
+    }
 
+    @ReadOnlyTransactional
+    @Override
+    public String findByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = BatchResult.checkIds(ids);
+        List<CustomerWithOrders> list = distinct.isEmpty() ? new ArrayList<>() : customerRepository.findDetailsByIds(distinct);
+        attachOrders(list);
         try {
-            return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(customer.get());
+            return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(BatchResult.of(distinct, list, CustomerView::getId));
         } catch (JsonProcessingException ex) {
             throw new IllegalStateException("Failed convert Customer to JSON: " + ex.getMessage());
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findByName(String name) {
-        List<Customer> list = customerRepository.findByName(name);
+        List<CustomerWithOrders> list = customerRepository.findDetailsByName(name);
+        attachOrders(list);
         try {
             return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -77,10 +245,10 @@ public class CustomerServiceImpl implements CustomerService {
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findAll() {
-        Iterable<Customer> list = customerRepository.findAll();
+        List<CustomerView> list = customerRepository.findViews();
         try {
             return mapperWithoutOrdersRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -88,13 +256,83 @@ public class CustomerServiceImpl implements CustomerService {
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
+    @Override
+    public String findPage(int afterId, int limit) {
+        List<CustomerView> rows = customerRepository.findViewsByIdGreaterThan(afterId,
+                PageRequest.of(0, KeysetPage.checkLimit(limit) + 1));
+        try {
+            return mapperWithoutOrdersRef.writeValueAsString(KeysetPage.of(rows, limit, CustomerView::getId));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Customer to JSON: " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public String search(String name, int limit) {
+        if (name.trim().isEmpty())
+            throw new IllegalArgumentException("Customer name must not be empty");
+
+        List<CustomerSearchHit> hits = customerSearchEngine.search(name, KeysetPage.checkLimit(limit));
+        try {
+            return mapperWithoutOrdersRef.writeValueAsString(hits);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Customer to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public void streamAll(OutputStream out) {
+        try (Stream<CustomerView> customers = customerRepository.streamAll()) {
+            JsonStreams.writeArray(mapperWithoutOrdersRef, customers, out);
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public List<OrderReportRow> reportOrders(Date startDate, Date endDate, Boolean onlyCompleted) {
+        try (Stream<OrderReportRow> rows = customerRepository.streamOrderReport(startDate, endDate, onlyCompleted)) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+
+    @ReadOnlyTransactional
     @Override
-    public Iterable<Object[]> reportOrders(Date startDate, Date endDate, Boolean onlyCompleted) {
-        return onlyCompleted == null ?
-                customerRepository.reportOrders(startDate, endDate) :
-               onlyCompleted ?
-                customerRepository.reportOrdersOnlyCompleted(startDate, endDate) :
-                customerRepository.reportOrdersWithCompletedFlag(startDate, endDate);
+    public void streamReportOrders(Date startDate, Date endDate, Boolean onlyCompleted, String format, OutputStream out) {
+        if (!format.equals("ndjson") && !format.equals("csv"))
+            throw new IllegalArgumentException("Unknown report format \"" + format + "\", expected ndjson or csv");
+
+        try (Stream<OrderReportRow> rows = customerRepository.streamOrderReport(startDate, endDate, onlyCompleted)) {
+            if (format.equals("csv"))
+                JsonStreams.writeCsv(rows, OrderReportRow.class, out);
+            else
+                JsonStreams.writeLines(mapperWithoutOrdersRef, rows, out);
+        }
+    }
+
+    private Map<Integer, Customer> findAllById(List<Integer> ids) {
+        Map<Integer, Customer> customers = new HashMap<>();
+        customerRepository.findAllById(ids).forEach(customer -> customers.put(customer.getId(), customer));
+
+        for (Integer id : ids) {
+            if (!customers.containsKey(id))
+                throw new IllegalArgumentException("Customer (id = " + id + ") not found");
+        }
+
+        return customers;
+    }
+
+    private void attachOrders(List<CustomerWithOrders> customers) {
+        if (customers.isEmpty())
+            return;
+
+        List<OrderWithBooks> orders = orderRepository.findDetailsByCustomerIds(Projections.ids(customers, CustomerView::getId));
+        Projections.attach(customers, CustomerView::getId, CustomerWithOrders::getOrders, orders, OrderView::getOwnerId);
+        if (orders.isEmpty())
+            return;
+
+        List<BookView> books = orderRepository.findBooksByOrderIds(Projections.ids(orders, OrderView::getId));
+        Projections.attach(orders, OrderView::getId, OrderWithBooks::getBooks, books, BookView::getOwnerId);
     }
 }
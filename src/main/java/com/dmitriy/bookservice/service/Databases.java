@@ -0,0 +1,23 @@
+package com.dmitriy.bookservice.service;
+
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Database behind the application data source, for statements that have a Postgres-only form
+@Component
+public class Databases {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public boolean isPostgres() {
+        if (postgres == null)
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>)connection -> connection.isWrapperFor(PGConnection.class));
+        return postgres;
+    }
+}
@@ -0,0 +1,8 @@
+package com.dmitriy.bookservice.service;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface ExportService {
+    void export(String table, String format, LocalDate from, LocalDate to, OutputStream out);
+}
@@ -0,0 +1,137 @@
+package com.dmitriy.bookservice.service;
+
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copies whole tables with COPY TO STDOUT on PostgreSQL, elsewhere writes CSV row by row from a cursor
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    // Values are quoted only when needed, as PostgreSQL does
+    private static final CsvMapper CSV_MAPPER = new CsvMapper().enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING);
+
+    private static final Map<String, List<String>> TABLES = new LinkedHashMap<>();
+
+    static {
+        TABLES.put("books", Arrays.asList("id", "name", "publicationYear", "annotation"));
+        TABLES.put("authors", Arrays.asList("id", "fullName", "birthYear"));
+        TABLES.put("books_authors", Arrays.asList("book_id", "author_id"));
+        TABLES.put("customers", Arrays.asList("id", "name", "phone"));
+        TABLES.put("orders", Arrays.asList("id", "customer_id", "creationDate", "completeDate", "completed"));
+        TABLES.put("orders_books", Arrays.asList("order_id", "book_id"));
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @ReadOnlyTransactional
+    @Override
+    public void export(String table, String format, LocalDate from, LocalDate to, OutputStream out) {
+        List<String> columns = TABLES.get(table);
+        if (columns == null)
+            throw new IllegalArgumentException("Unknown table \"" + table + "\", expected one of " + TABLES.keySet());
+
+        if (!format.equals("csv") && !format.equals("binary"))
+            throw new IllegalArgumentException("Unknown export format \"" + format + "\", expected csv or binary");
+
+        String query = query(table, columns, from, to);
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                String options = format.equals("csv") ? "format csv, header" : "format binary";
+                connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut("copy (" + query + ") to stdout with (" + options + ")", out);
+            } else {
+                if (!format.equals("csv"))
+                    throw new IllegalArgumentException("Export format \"" + format + "\" is supported only by PostgreSQL");
+                writeCsv(query, columns, out);
+            }
+        } catch (SQLException | IOException ex) {
+            throw new IllegalStateException("Failed export table " + table + ": " + ex.getMessage());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // COPY does not take bind parameters, the dates are inlined as ISO literals
+    private String query(String table, List<String> columns, LocalDate from, LocalDate to) {
+        StringBuilder query = new StringBuilder("select ")
+                .append(String.join(", ", columns))
+                .append(" from ").append(table);
+
+        if (from == null && to == null)
+            return query.toString();
+
+        String range = "";
+        if (from != null)
+            range += " and creationDate >= date '" + from + "'";
+        if (to != null)
+            range += " and creationDate <= date '" + to + "'";
+        range = range.substring(" and ".length());
+
+        switch (table) {
+            case "orders":
+                return query.append(" where ").append(range).toString();
+            case "orders_books":
+                return query.append(" where order_id in (select id from orders where ").append(range).append(")").toString();
+            default:
+                throw new IllegalArgumentException("creationDate range is supported only for orders and orders_books");
+        }
+    }
+
+    private void writeCsv(String query, List<String> columns, OutputStream out) throws IOException {
+        CsvSchema.Builder schema = CsvSchema.builder();
+        columns.forEach(schema::addColumn);
+
+        try (SequenceWriter writer = CSV_MAPPER.writer(schema.setUseHeader(true).build()).writeValues(out)) {
+            Object[] values = new Object[columns.size()];
+            jdbcTemplate.query(query, rs -> {
+                for (int i = 0; i < values.length; i++)
+                    values[i] = csvValue(rs, i + 1);
+                try {
+                    writer.write(values);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    // Same text as the PostgreSQL CSV output
+    private static Object csvValue(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null)
+            return "";
+        if (value instanceof Boolean)
+            return (Boolean)value ? "t" : "f";
+        if (value instanceof Number)
+            return value;
+        return rs.getString(column);
+    }
+}
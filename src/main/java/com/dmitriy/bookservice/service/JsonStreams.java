@@ -0,0 +1,100 @@
+package com.dmitriy.bookservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+final class JsonStreams {
+
+    private JsonStreams() {}
+
+    // Writes items as a JSON array one by one, so memory use does not depend on the number of items
+    static <T> void writeArray(ObjectMapper mapper, Stream<T> items, OutputStream out) {
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+
+            for (Iterator<T> it = items.iterator(); it.hasNext(); )
+                writer.writeValue(generator, it.next());
+
+            generator.writeEndArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed write JSON stream: " + ex.getMessage());
+        }
+    }
+
+    // Writes items as newline-delimited JSON, one item per line
+    static <T> void writeLines(ObjectMapper mapper, Stream<T> items, OutputStream out) {
+        ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            for (Iterator<T> it = items.iterator(); it.hasNext(); ) {
+                writer.writeValue(generator, it.next());
+                generator.writeRaw('\n');
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed write JSON stream: " + ex.getMessage());
+        }
+    }
+
+    // Writes items as CSV with a header, columns are the properties of the item type
+    static <T> void writeCsv(Stream<T> items, Class<T> type, OutputStream out) {
+        CsvMapper mapper = new CsvMapper().enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING);
+        ObjectWriter writer = mapper.writer(mapper.schemaFor(type).withHeader());
+
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out);
+             SequenceWriter sequence = writer.writeValues(generator)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            for (Iterator<T> it = items.iterator(); it.hasNext(); )
+                sequence.write(it.next());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed write CSV stream: " + ex.getMessage());
+        }
+    }
+
+    // Reads a JSON array item by item and passes the items on in chunks of the specified size
+    static <T> void readArray(ObjectMapper mapper, InputStream in, Class<T> type, int chunkSize, Consumer<List<T>> chunks) {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new IllegalArgumentException("Expected JSON array");
+
+            List<T> chunk = new ArrayList<>(chunkSize);
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null)
+                    throw new IllegalArgumentException("Unexpected end of JSON array");
+
+                chunk.add(mapper.readValue(parser, type));
+                if (chunk.size() == chunkSize) {
+                    chunks.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty())
+                chunks.accept(chunk);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Failed read JSON array: " + ex.getMessage());
+        }
+    }
+}
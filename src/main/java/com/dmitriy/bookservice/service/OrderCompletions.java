@@ -0,0 +1,101 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.model.BatchResult;
+import com.dmitriy.bookservice.model.OrderCompletionReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Completes many orders by set-based UPDATEs after locking them in ID order
+@Component
+public class OrderCompletions {
+
+    private static final int CHUNK_SIZE = BatchResult.MAX_IDS;
+
+    private static final String LOCK_COLUMNS = "select id, completed, creationDate from orders ";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    public OrderCompletionReport complete(Collection<Integer> ids, Date completeDate) {
+        Set<Integer> missing = new LinkedHashSet<>(ids);
+        List<Integer> sorted = new ArrayList<>(missing);
+        Collections.sort(sorted);
+
+        Selection selection = new Selection();
+        for (List<Integer> chunk : chunks(sorted)) {
+            selection.lock(LOCK_COLUMNS + "where id in (" + placeholders(chunk.size()) + ") order by id for update", chunk.toArray());
+        }
+
+        missing.removeAll(selection.days.keySet());
+        missing.removeAll(selection.alreadyCompleted);
+        return selection.complete(completeDate, new ArrayList<>(missing));
+    }
+
+    public OrderCompletionReport complete(int customerId, Date createdFrom, Date createdTo, Date completeDate) {
+        Selection selection = new Selection();
+        selection.lock(LOCK_COLUMNS + "where customer_id = ? and creationDate >= ? and creationDate <= ? order by id for update",
+                customerId, new java.sql.Date(createdFrom.getTime()), new java.sql.Date(createdTo.getTime()));
+        return selection.complete(completeDate, new ArrayList<>());
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += CHUNK_SIZE)
+            chunks.add(ids.subList(i, Math.min(i + CHUNK_SIZE, ids.size())));
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private class Selection {
+        // Creation days of the orders to complete, the locked ones that are not completed yet
+        private final Map<Integer, Date> days = new LinkedHashMap<>();
+        private final List<Integer> alreadyCompleted = new ArrayList<>();
+
+        void lock(String sql, Object... args) {
+            jdbcTemplate.query(sql, (RowCallbackHandler)rs -> {
+                if (rs.getBoolean("completed"))
+                    alreadyCompleted.add(rs.getInt("id"));
+                else
+                    days.put(rs.getInt("id"), rs.getDate("creationDate"));
+            }, args);
+        }
+
+        OrderCompletionReport complete(Date completeDate, List<Integer> missing) {
+            List<Integer> completed = new ArrayList<>(days.keySet());
+            for (List<Integer> chunk : chunks(completed)) {
+                String in = placeholders(chunk.size());
+
+                List<Object> args = new ArrayList<>();
+                args.add(new java.sql.Date(completeDate.getTime()));
+                args.addAll(chunk);
+                jdbcTemplate.update("update orders set completed = true, completeDate = ?, version = version + 1 " +
+                        "where id in (" + in + ")", args.toArray());
+
+                Set<Date> chunkDays = new HashSet<>();
+                chunk.forEach(id -> chunkDays.add(days.get(id)));
+                orderRollups.completeAll(chunk, chunkDays);
+            }
+
+            return new OrderCompletionReport(completed, alreadyCompleted, missing);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.cache.ReportCache;
+import com.dmitriy.bookservice.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+// Keeps order_daily_rollups in step, callers subtract the old order state and add the new one
+@Component
+public class OrderRollups {
+
+    private static final String UPSERT =
+            "insert into order_daily_rollups(customer_id, day, books, completed_books) values (?, ?, ?, ?) " +
+            "on conflict (customer_id, day) do update set " +
+                    "books = order_daily_rollups.books + excluded.books, " +
+                    "completed_books = order_daily_rollups.completed_books + excluded.completed_books";
+
+    private static final String UPDATE =
+            "update order_daily_rollups set books = books + ?, completed_books = completed_books + ? " +
+            "where customer_id = ? and day = ?";
+
+    private static final String INSERT =
+            "insert into order_daily_rollups(customer_id, day, books, completed_books) values (?, ?, ?, ?)";
+
+    private static final String ORDERED_BOOK =
+            "from orders o join orders_books ob on ob.order_id = o.id " +
+            "where ob.book_id = ? and o.customer_id = order_daily_rollups.customer_id and o.creationDate = order_daily_rollups.day";
+
+    private static final String REMOVE_BOOK =
+            "update order_daily_rollups set " +
+                    "books = books - (select count(*) " + ORDERED_BOOK + "), " +
+                    "completed_books = completed_books - (select count(*) " + ORDERED_BOOK + " and o.completed = true) " +
+            "where exists (select 1 " + ORDERED_BOOK + ")";
+
+    private static final String COMPLETE =
+            "update order_daily_rollups set completed_books = completed_books + (select count(*) from orders_books where order_id = ?) " +
+            "where customer_id = (select customer_id from orders where id = ?) and day = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private Databases databases;
+
+    public void add(Order order) {
+        change(order, 1);
+    }
+
+    public void subtract(Order order) {
+        change(order, -1);
+    }
+
+    // Must be called after the order created on the specified day is completed
+    public void complete(int orderId, Date day) {
+        jdbcTemplate.update(COMPLETE, orderId, orderId, new java.sql.Date(day.getTime()));
+        reportCache.invalidate(day);
+    }
+
+    // Must be called after the orders created on the specified days are completed
+    public void completeAll(Collection<Integer> orderIds, Collection<Date> days) {
+        String orderedBooks = "from orders o join orders_books ob on ob.order_id = o.id " +
+                "where o.id in (" + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ") " +
+                "and o.customer_id = order_daily_rollups.customer_id and o.creationDate = order_daily_rollups.day";
+
+        List<Object> args = new ArrayList<>(orderIds);
+        args.addAll(orderIds);
+        jdbcTemplate.update("update order_daily_rollups set completed_books = completed_books + (select count(*) " + orderedBooks + ") " +
+                "where exists (select 1 " + orderedBooks + ")", args.toArray());
+        days.forEach(reportCache::invalidate);
+    }
+
+    // Must be called before the books are deleted, while their order lines still exist
+    public void removeBooks(Collection<Integer> bookIds) {
+        for (Integer id : bookIds)
+            jdbcTemplate.update(REMOVE_BOOK, id, id, id);
+        reportCache.invalidateAll();
+    }
+
+    private void change(Order order, int sign) {
+        int books = order.getBooks() != null ? order.getBooks().size() : 0;
+        if (books == 0)
+            return;
+
+        int completedBooks = Boolean.TRUE.equals(order.getCompleted()) ? books : 0;
+        int customerId = order.getCustomer().getId();
+        java.sql.Date day = new java.sql.Date(order.getCreationDate().getTime());
+
+        change(customerId, day, sign * books, sign * completedBooks);
+        reportCache.invalidate(day);
+    }
+
+    private void change(int customerId, Date day, int books, int completedBooks) {
+        if (databases.isPostgres()) {
+            jdbcTemplate.update(UPSERT, customerId, day, books, completedBooks);
+            return;
+        }
+
+        if (jdbcTemplate.update(UPDATE, books, completedBooks, customerId, day) == 0)
+            jdbcTemplate.update(INSERT, customerId, day, books, completedBooks);
+    }
+}
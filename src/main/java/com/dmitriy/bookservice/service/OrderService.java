@@ -1,15 +1,36 @@
 package com.dmitriy.bookservice.service;
 
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.model.OrderCompletionReport;
+import com.dmitriy.bookservice.model.OrderFilter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderService {
     Order add(Order order);
     void update(Order order);
+    void update(Order order, String ifMatch);
     void delete(int id);
 
+    List<Integer> addAll(InputStream in);
+    void updateAll(InputStream in);
+    void deleteAll(InputStream in);
+
     String findById(int id);
+    String versionTag(int id);
+    String listVersionTag();
+    String findByIds(Collection<Integer> ids);
     String findAll();
+    String findPage(int afterId, int limit);
+    String filter(OrderFilter filter, int offset, int limit);
+    void streamAll(OutputStream out);
 
     String findByCustomerId(int id);
     void completeById(int id);
+    OrderCompletionReport completeAll(Collection<Integer> ids);
+    OrderCompletionReport completeAll(int customerId, LocalDate createdFrom, LocalDate createdTo);
 }
@@ -1,16 +1,42 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
+import com.dmitriy.bookservice.model.BatchResult;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.KeysetPage;
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.model.OrderCompletionReport;
+import com.dmitriy.bookservice.model.OrderFilter;
+import com.dmitriy.bookservice.model.SearchPage;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.OrderView;
+import com.dmitriy.bookservice.projection.OrderWithBooks;
 import com.dmitriy.bookservice.repository.OrderRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class OrderServiceImpl implements OrderService {
@@ -18,6 +44,27 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private JsonCache jsonCache;
+
+    @Autowired
+    private BulkWriter bulkWriter;
+
+    @Autowired
+    private OrderRollups orderRollups;
+
+    @Autowired
+    private TableRevisions tableRevisions;
+
+    @Autowired
+    private VersionedUpdates versionedUpdates;
+
+    @Autowired
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @Autowired
+    private OrderCompletions orderCompletions;
+
     @Autowired
     @Qualifier("mapperWithoutBooksAndOrdersRef")
     private ObjectMapper mapperWithoutBooksAndOrdersRef;
@@ -36,55 +83,188 @@ public class OrderServiceImpl implements OrderService {
         if (order.getId() != 0)
             throw new IllegalArgumentException("ID of new order generate automatically and must be equal 0 or absent");
 
-        return orderRepository.save(order);
+        Order saved = orderRepository.save(order);
+        orderRollups.add(saved);
+        jsonCache.invalidate(Customer.class, order.getCustomer().getId());
+        return saved;
     }
 
     @Transactional
     @Override
     public void update(Order order) {
-        if (!orderRepository.existsById(order.getId()))
+        update(order, null);
+    }
+
+    // The previous state of the order is read anyway to subtract it from the rollups, so the order is merged
+    // with the expected version and Hibernate checks it in the UPDATE
+    @Transactional
+    @Override
+    public void update(Order order, String ifMatch) {
+        Optional<Order> existing = orderRepository.findById(order.getId());
+        if (!existing.isPresent())
             throw new IllegalArgumentException("Order (id = " + order.getId() + ") not found");
 
-        orderRepository.save(order);
+        Integer expectedVersion = VersionTags.version(ifMatch);
+        if (expectedVersion != null)
+            VersionTags.check("Order", order.getId(), expectedVersion, existing.get().getVersion());
+
+        orderRollups.subtract(existing.get());
+        order.setVersion(existing.get().getVersion());
+        orderRollups.add(orderRepository.save(order));
+        jsonCache.invalidate(Order.class, order.getId());
+        jsonCache.invalidate(Customer.class, order.getCustomer().getId());
     }
 
     @Transactional
     @Override
     public void delete(int id) {
+        orderRepository.findById(id).ifPresent(orderRollups::subtract);
         orderRepository.deleteById(id);
+        jsonCache.invalidate(Order.class, id);
+    }
+
+    @Transactional
+    @Override
+    public List<Integer> addAll(InputStream in) {
+        List<Integer> ids = new ArrayList<>();
+        Set<Integer> customerIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Order.class, orders -> {
+            for (Order order : orders) {
+                if (order.getId() != 0)
+                    throw new IllegalArgumentException("ID of new order generate automatically and must be equal 0 or absent");
+
+                Order saved = orderRepository.save(order);
+                orderRollups.add(saved);
+                ids.add(saved.getId());
+                customerIds.add(order.getCustomer().getId());
+            }
+
+        });
+
+        jsonCache.invalidate(Customer.class, customerIds);
+        return ids;
+    }
+
+    @Transactional
+    @Override
+    public void updateAll(InputStream in) {
+        Set<Integer> orderIds = new HashSet<>();
+        Set<Integer> customerIds = new HashSet<>();
+
+        bulkWriter.forEachVersionedChunk(in, Order.class, Order::setVersion, orders -> {
+            List<Integer> ids = orders.stream().map(Order::getId).collect(Collectors.toList());
+            Map<Integer, Order> old = findAllById(ids);
+            orderIds.addAll(ids);
+
+            for (Order order : orders) {
+                VersionTags.check("Order", order.getId(), order.getVersion(), old.get(order.getId()).getVersion());
+                customerIds.add(order.getCustomer().getId());
+            }
+
+            old.values().forEach(orderRollups::subtract);
+
+            orderRepository.saveAll(orders).forEach(orderRollups::add);
+        });
+
+        jsonCache.invalidate(Order.class, orderIds);
+        jsonCache.invalidate(Customer.class, customerIds);
+    }
+
+    @Transactional
+    @Override
+    public void deleteAll(InputStream in) {
+        Set<Integer> orderIds = new HashSet<>();
+
+        bulkWriter.forEachChunk(in, Integer.class, ids -> {
+            Map<Integer, Order> orders = findAllById(ids);
+            orderIds.addAll(orders.keySet());
+
+            orders.values().forEach(orderRollups::subtract);
+            orderRepository.deleteAll(orders.values());
+        });
+
+        jsonCache.invalidate(Order.class, orderIds);
     }
 
     @Transactional
     @Override
     public String findById(int id) {
-        Optional<Order> order = orderRepository.findById(id);
+        return jsonCache.get(Order.class, "mapperWithoutAuthorsAndOrdersRef", id, dependencies -> {
+            Optional<OrderWithBooks> order = orderRepository.findById(id).map(Projections::of);
 
-        if (!order.isPresent())
-            throw new IllegalStateException("Order (id = " + id + ") not found");
+            if (!order.isPresent())
+                throw new IllegalStateException("Order (id = " + id + ") not found");
 
-        try {
-            return mapperWithoutAuthorsAndOrdersRef.writeValueAsString(order.get());
-        } catch (JsonProcessingException ex) {
-            throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
-        }
+            dependencies.add(Customer.class, order.get().getCustomer().getId());
+            order.get().getBooks().forEach(book -> dependencies.add(Book.class, book.getId()));
+
+            dependencies.tag(VersionTags.of(orderRepository.probeVersions(id)));
+
+            try {
+                return mapperWithoutAuthorsAndOrdersRef.writeValueAsString(order.get());
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
+            }
+        });
+    }
+
+    @Transactional
+    @Override
+    public String versionTag(int id) {
+        return jsonCache.tag(Order.class, "mapperWithoutAuthorsAndOrdersRef", id, () -> {
+            String tag = VersionTags.of(orderRepository.probeVersions(id));
+            if (tag == null)
+                throw new IllegalStateException("Order (id = " + id + ") not found");
+
+            return tag;
+        });
+    }
+
+    // Order views contain the name and phone of the customer
+    @ReadOnlyTransactional
+    @Override
+    public String listVersionTag() {
+        return tableRevisions.tag("orders", "customers");
     }
 
     @Transactional
     @Override
     public String findByCustomerId(int id) {
-        Iterable<Order> list = orderRepository.findByCustomerId(id);
+        return jsonCache.get(Customer.class, "orders", id, dependencies -> {
+            List<OrderWithBooks> list = orderRepository.findDetailsByCustomerIds(Collections.singleton(id));
+            attachBooks(list);
+
+            for (OrderWithBooks order : list) {
+                dependencies.add(Order.class, order.getId());
+                order.getBooks().forEach(book -> dependencies.add(Book.class, book.getId()));
+            }
+
+            try {
+                return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(list);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
+            }
+        });
+    }
 
+    @ReadOnlyTransactional
+    @Override
+    public String findByIds(Collection<Integer> ids) {
+        Set<Integer> distinct = BatchResult.checkIds(ids);
+        List<OrderWithBooks> list = distinct.isEmpty() ? new ArrayList<>() : orderRepository.findDetailsByIds(distinct);
+        attachBooks(list);
         try {
-            return mapperWithoutAuthorsAndCustomerRef.writeValueAsString(list);
+            return mapperWithoutAuthorsAndOrdersRef.writeValueAsString(BatchResult.of(distinct, list, OrderView::getId));
         } catch (JsonProcessingException ex) {
             throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
         }
     }
 
-    @Transactional
+    @ReadOnlyTransactional
     @Override
     public String findAll() {
-        Iterable<Order> list = orderRepository.findAll();
+        List<OrderView> list = orderRepository.findViews();
         try {
             return mapperWithoutBooksAndOrdersRef.writeValueAsString(list);
         } catch (JsonProcessingException ex) {
@@ -92,20 +272,90 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    @ReadOnlyTransactional
+    @Override
+    public String findPage(int afterId, int limit) {
+        List<OrderView> rows = orderRepository.findViewsByIdGreaterThan(afterId,
+                PageRequest.of(0, KeysetPage.checkLimit(limit) + 1));
+        try {
+            return mapperWithoutBooksAndOrdersRef.writeValueAsString(KeysetPage.of(rows, limit, OrderView::getId));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public String filter(OrderFilter filter, int offset, int limit) {
+        if (offset < 0)
+            throw new IllegalArgumentException("Page offset must not be negative");
+
+        List<OrderView> rows = orderRepository.filterViews(filter, offset, KeysetPage.checkLimit(limit) + 1);
+        try {
+            return mapperWithoutBooksAndOrdersRef.writeValueAsString(SearchPage.of(rows, offset, limit));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed convert Order to JSON: " + ex.getMessage());
+        }
+    }
+
+    @ReadOnlyTransactional
+    @Override
+    public void streamAll(OutputStream out) {
+        try (Stream<OrderView> orders = orderRepository.streamAll()) {
+            JsonStreams.writeArray(mapperWithoutBooksAndOrdersRef, orders, out);
+        }
+    }
+
     @Transactional
     @Override
     public void completeById(int id) {
-        Optional<Order> opt = orderRepository.findById(id);
-        if (!opt.isPresent())
-            throw new IllegalArgumentException("Order (id = " + id + ") not found");
+        Date day = versionedUpdates.complete(id, new Date());
+        orderRollups.complete(id, day);
+        entityCacheEvictor.evictEntity(Order.class, id);
+        jsonCache.invalidate(Order.class, id);
+    }
+
+    @Transactional
+    @Override
+    public OrderCompletionReport completeAll(Collection<Integer> ids) {
+        return completed(orderCompletions.complete(ids, new Date()));
+    }
 
-        Order order = opt.get();
-        if (order.getCompleted())
-            throw new IllegalArgumentException("Order (id = " + id + ") already completed");
+    @Transactional
+    @Override
+    public OrderCompletionReport completeAll(int customerId, LocalDate createdFrom, LocalDate createdTo) {
+        if (createdFrom.isAfter(createdTo))
+            throw new IllegalArgumentException("Start of the creation date range must not be after its end");
+
+        return completed(orderCompletions.complete(customerId, java.sql.Date.valueOf(createdFrom), java.sql.Date.valueOf(createdTo), new Date()));
+    }
+
+    private OrderCompletionReport completed(OrderCompletionReport report) {
+        if (report.getCompletedIds().isEmpty())
+            return report;
+
+        entityCacheEvictor.evictEntities(Order.class);
+        jsonCache.invalidate(Order.class, report.getCompletedIds());
+        return report;
+    }
+
+    private Map<Integer, Order> findAllById(List<Integer> ids) {
+        Map<Integer, Order> orders = new HashMap<>();
+        orderRepository.findAllById(ids).forEach(order -> orders.put(order.getId(), order));
+
+        for (Integer id : ids) {
+            if (!orders.containsKey(id))
+                throw new IllegalArgumentException("Order (id = " + id + ") not found");
+        }
+
+        return orders;
+    }
 
-        order.setCompleteDate(new Date());
-        order.setCompleted(true);
+    private void attachBooks(List<OrderWithBooks> orders) {
+        if (orders.isEmpty())
+            return;
 
-        orderRepository.save(order);
+        List<BookView> books = orderRepository.findBooksByOrderIds(Projections.ids(orders, OrderView::getId));
+        Projections.attach(orders, OrderView::getId, OrderWithBooks::getBooks, books, BookView::getOwnerId);
     }
 }
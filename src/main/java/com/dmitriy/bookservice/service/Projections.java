@@ -0,0 +1,81 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.AuthorWithBooks;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
+import com.dmitriy.bookservice.projection.CustomerWithOrders;
+import com.dmitriy.bookservice.projection.OrderWithBooks;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+final class Projections {
+
+    private Projections() {}
+
+    static <T> Set<Integer> ids(List<T> items, ToIntFunction<T> id) {
+        return items.stream().map(id::applyAsInt).collect(Collectors.toSet());
+    }
+
+    // Distributes rows of a joined collection among their owners keeping the order of the rows
+    static <T, R> void attach(List<T> owners, ToIntFunction<T> id, Function<T, List<R>> collection,
+                              List<R> rows, Function<R, Integer> ownerId) {
+        Map<Integer, List<R>> byOwner = new HashMap<>();
+        owners.forEach(owner -> byOwner.put(id.applyAsInt(owner), collection.apply(owner)));
+        rows.forEach(row -> byOwner.get(ownerId.apply(row)).add(row));
+    }
+
+    // Views of the single entity reads, built from entities served by the second-level cache
+
+    static BookWithAuthors of(Book book) {
+        BookWithAuthors view = new BookWithAuthors(book.getId(), book.getName(), book.getPublicationYear(), book.getAnnotation());
+        sorted(book.getAuthors(), Author::getId).forEach(author ->
+                view.getAuthors().add(new AuthorView(book.getId(), author.getId(), author.getFullName(), author.getBirthYear())));
+        return view;
+    }
+
+    static AuthorWithBooks of(Author author) {
+        AuthorWithBooks view = new AuthorWithBooks(author.getId(), author.getFullName(), author.getBirthYear());
+        sorted(author.getBooks(), Book::getId).forEach(book -> view.getBooks().add(bookView(author.getId(), book)));
+        return view;
+    }
+
+    static CustomerWithOrders of(Customer customer) {
+        CustomerWithOrders view = new CustomerWithOrders(customer.getId(), customer.getName(), customer.getPhone());
+        for (Order order : sorted(customer.getOrders(), Order::getId)) {
+            OrderWithBooks orderView = new OrderWithBooks(customer.getId(), order.getId(), order.getCreationDate(),
+                    order.getCompleteDate(), order.getCompleted());
+            sorted(order.getBooks(), Book::getId).forEach(book -> orderView.getBooks().add(bookView(order.getId(), book)));
+            view.getOrders().add(orderView);
+        }
+        return view;
+    }
+
+    static OrderWithBooks of(Order order) {
+        Customer customer = order.getCustomer();
+        OrderWithBooks view = new OrderWithBooks(order.getId(), customer.getId(), customer.getName(), customer.getPhone(),
+                order.getCreationDate(), order.getCompleteDate(), order.getCompleted());
+        sorted(order.getBooks(), Book::getId).forEach(book -> view.getBooks().add(bookView(order.getId(), book)));
+        return view;
+    }
+
+    private static BookView bookView(int ownerId, Book book) {
+        return new BookView(ownerId, book.getId(), book.getName(), book.getPublicationYear(), book.getAnnotation());
+    }
+
+    private static <T> List<T> sorted(Collection<T> items, ToIntFunction<T> id) {
+        return items.stream().sorted(Comparator.comparingInt(id)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,13 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.model.ReportJob;
+import com.dmitriy.bookservice.projection.OrderReportRow;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ReportJobService {
+    ReportJob submit(Date startDate, Date endDate, Boolean onlyCompleted);
+    ReportJob findById(String id);
+    List<OrderReportRow> findResultById(String id);
+}
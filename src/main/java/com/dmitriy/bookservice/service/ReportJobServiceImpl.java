@@ -0,0 +1,126 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.cache.ReportCache;
+import com.dmitriy.bookservice.model.ReportJob;
+import com.dmitriy.bookservice.projection.OrderReportRow;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Runs order reports on a bounded pool, jobs are shared through ReportCache
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportJobServiceImpl.class);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Value("${report.jobs.threads:2}")
+    private int threads;
+
+    @Value("${report.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${report.jobs.maximum-size:1000}")
+    private long maximumSize;
+
+    @Value("${report.jobs.expire-after-write:3600}")
+    private long expireAfterWrite;
+
+    private ThreadPoolExecutor executor;
+
+    private Cache<String, ReportJob> jobs;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("report-"));
+        jobs = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ReportJob submit(Date startDate, Date endDate, Boolean onlyCompleted) {
+        if (startDate.after(endDate))
+            throw new IllegalArgumentException("Start date of the report must not be after end date");
+
+        ReportJob job = reportCache.get(startDate, endDate, onlyCompleted, () -> start(new ReportJob(startDate, endDate, onlyCompleted)));
+        if (job.getStatus() == ReportJob.Status.FAILED) {
+            reportCache.remove(job);
+            job = reportCache.get(startDate, endDate, onlyCompleted, () -> start(new ReportJob(startDate, endDate, onlyCompleted)));
+        }
+
+        // Keeps a shared job available by ID as long as it is cached
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    @Override
+    public ReportJob findById(String id) {
+        ReportJob job = jobs.getIfPresent(id);
+        if (job == null)
+            throw new IllegalArgumentException("Report job (id = " + id + ") not found");
+
+        return job;
+    }
+
+    @Override
+    public List<OrderReportRow> findResultById(String id) {
+        ReportJob job = findById(id);
+
+        switch (job.getStatus()) {
+            case DONE:
+                return job.getResult();
+            case FAILED:
+                throw new IllegalStateException("Report job (id = " + id + ") failed: " + job.getError());
+            default:
+                throw new IllegalStateException("Report job (id = " + id + ") is not finished");
+        }
+    }
+
+    private ReportJob start(ReportJob job) {
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException ex) {
+            throw new IllegalStateException("Too many report jobs in the queue, try again later");
+        }
+
+        return job;
+    }
+
+    private void run(ReportJob job) {
+        job.running();
+        try {
+            job.done(customerService.reportOrders(job.getStartDate(), job.getEndDate(), job.getOnlyCompleted()));
+        } catch (RuntimeException ex) {
+            log.warn("Report job (id = {}) failed", job.getId(), ex);
+            job.failed(ex.getMessage());
+            reportCache.remove(job);
+        }
+    }
+}
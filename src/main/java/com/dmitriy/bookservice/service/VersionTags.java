@@ -0,0 +1,55 @@
+package com.dmitriy.bookservice.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+final class VersionTags {
+
+    private VersionTags() {}
+
+    // Strong entity tag of a JSON view from a version probe: the first column of every row is the version of the
+    // entity, the other columns are IDs and versions of the embedded entities. Null if the entity does not exist.
+    static String of(List<Object[]> rows) {
+        if (rows.isEmpty())
+            return null;
+
+        CRC32 embedded = new CRC32();
+        for (Object[] row : rows) {
+            for (int i = 1; i < row.length; i++)
+                embedded.update((row[i] + ",").getBytes(StandardCharsets.US_ASCII));
+            embedded.update(';');
+        }
+
+        return "\"" + rows.get(0)[0] + "-" + Long.toHexString(embedded.getValue()) + "\"";
+    }
+
+    // Version of the entity from an If-Match header with a tag of the entity, null if the header is absent or "*".
+    // Only the entity version is compared: a change of an embedded entity is not a conflict for an update.
+    static Integer version(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/"))
+            tag = tag.substring(2);
+
+        int end = tag.indexOf('-');
+        if (tag.startsWith("\"") && tag.endsWith("\"") && end > 1) {
+            try {
+                return Integer.valueOf(tag.substring(1, end));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid If-Match header " + ifMatch + ", expected an entity tag of the entity");
+    }
+
+    static void check(String entity, int id, int expectedVersion, int currentVersion) {
+        if (expectedVersion != currentVersion)
+            throw new OptimisticLockingFailureException(entity + " (id = " + id + ") was changed concurrently, version " +
+                    expectedVersion + " expected, current version " + currentVersion);
+    }
+}
@@ -0,0 +1,124 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+// Single-UPDATE writes matched by ID and the version the client has read, without loading the entity
+@Component
+public class VersionedUpdates {
+
+    private static final String UPDATE_BOOK =
+            "update books set name = ?, publicationYear = ?, annotation = ?, version = version + 1 where id = ?";
+
+    private static final String UPDATE_AUTHOR =
+            "update authors set fullName = ?, birthYear = ?, version = version + 1 where id = ?";
+
+    private static final String UPDATE_CUSTOMER =
+            "update customers set name = ?, phone = ?, version = version + 1 where id = ?";
+
+    private static final String COMPLETE_ORDER =
+            "update orders set completed = true, completeDate = ?, version = version + 1 where id = ? and completed = false";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private Databases databases;
+
+    public void update(Book book, Integer expectedVersion) {
+        validate(book);
+        update("books", "Book", book.getId(), expectedVersion, UPDATE_BOOK,
+                book.getName(), book.getPublicationYear(), book.getAnnotation());
+    }
+
+    public void update(Author author, Integer expectedVersion) {
+        validate(author);
+        update("authors", "Author", author.getId(), expectedVersion, UPDATE_AUTHOR,
+                author.getFullName(), author.getBirthYear());
+    }
+
+    public void update(Customer customer, Integer expectedVersion) {
+        validate(customer);
+        update("customers", "Customer", customer.getId(), expectedVersion, UPDATE_CUSTOMER,
+                customer.getName(), customer.getPhone());
+    }
+
+    // Completes the order only if it is not completed yet, so of concurrent requests exactly one succeeds.
+    // Returns the creation day of the completed order.
+    public Date complete(int orderId, Date completeDate) {
+        java.sql.Date date = new java.sql.Date(completeDate.getTime());
+
+        List<java.sql.Date> days;
+        if (databases.isPostgres()) {
+            days = jdbcTemplate.queryForList(COMPLETE_ORDER + " returning creationDate", java.sql.Date.class, date, orderId);
+        } else if (jdbcTemplate.update(COMPLETE_ORDER, date, orderId) == 1) {
+            // No UPDATE ... RETURNING in H2
+            days = jdbcTemplate.queryForList("select creationDate from orders where id = ?", java.sql.Date.class, orderId);
+        } else {
+            days = Collections.emptyList();
+        }
+
+        if (days.isEmpty()) {
+            List<Boolean> completed = jdbcTemplate.queryForList("select completed from orders where id = ?", Boolean.class, orderId);
+            if (completed.isEmpty())
+                throw new IllegalArgumentException("Order (id = " + orderId + ") not found");
+
+            throw new IllegalArgumentException("Order (id = " + orderId + ") already completed");
+        }
+
+        return days.get(0);
+    }
+
+    // Replaces the rows of a link table owned by the specified ID
+    public void replaceLinks(String table, String ownerColumn, int ownerId, String targetColumn, Collection<Integer> targetIds) {
+        jdbcTemplate.update("delete from " + table + " where " + ownerColumn + " = ?", ownerId);
+        if (targetIds.isEmpty())
+            return;
+
+        List<Object[]> rows = new ArrayList<>();
+        targetIds.forEach(targetId -> rows.add(new Object[] {ownerId, targetId}));
+        jdbcTemplate.batchUpdate("insert into " + table + "(" + ownerColumn + ", " + targetColumn + ") values (?, ?)", rows);
+    }
+
+    private void update(String table, String entity, int id, Integer expectedVersion, String sql, Object... values) {
+        Object[] args = new Object[values.length + (expectedVersion == null ? 1 : 2)];
+        System.arraycopy(values, 0, args, 0, values.length);
+        args[values.length] = id;
+        if (expectedVersion != null)
+            args[values.length + 1] = expectedVersion;
+
+        if (jdbcTemplate.update(expectedVersion == null ? sql : sql + " and version = ?", args) == 1)
+            return;
+
+        List<Integer> current = jdbcTemplate.queryForList("select version from " + table + " where id = ?", Integer.class, id);
+        if (current.isEmpty())
+            throw new IllegalArgumentException(entity + " (id = " + id + ") not found");
+
+        throw new OptimisticLockingFailureException(entity + " (id = " + id + ") was changed concurrently, version " +
+                expectedVersion + " expected, current version " + current.get(0));
+    }
+
+    private <T> void validate(T entity) {
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        if (!violations.isEmpty())
+            throw new ConstraintViolationException(violations);
+    }
+}
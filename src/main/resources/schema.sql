@@ -5,14 +5,34 @@ create table if not exists books(
   annotation text not null
 );
 
+alter sequence books_id_seq increment by 50;
+
+alter table books add column if not exists version int not null default 0;
+
 create index if not exists ind_book_names on books(name);
 
+-- Full-text search document, name words rank above annotation words (PostgreSQL 12+)
+alter table books add column if not exists search_vector tsvector generated always as (
+  setweight(to_tsvector('english', name), 'A') || setweight(to_tsvector('english', annotation), 'B')
+) stored;
+
+create index if not exists ind_book_search on books using gin(search_vector);
+
+-- Book filter: publication year ranges and name prefixes (LIKE 'prefix%' needs the pattern operator class)
+create index if not exists ind_book_years on books(publicationYear);
+
+create index if not exists ind_book_name_prefixes on books(name text_pattern_ops);
+
 create table if not exists authors(
   id serial primary key,
   fullName text not null,
   birthYear int not null
 );
 
+alter sequence authors_id_seq increment by 50;
+
+alter table authors add column if not exists version int not null default 0;
+
 create index if not exists ind_author_fullName on authors(fullName);
 
 create table if not exists books_authors(
@@ -20,14 +40,29 @@ create table if not exists books_authors(
   author_id int references authors(id) on delete cascade
 );
 
+create index if not exists ind_books_authors on books_authors(book_id, author_id);
+
+-- Books of an author
+create index if not exists ind_authors_books on books_authors(author_id, book_id);
+
 create table if not exists customers(
   id serial primary key,
   name text not null,
   phone text not null
 );
 
+alter sequence customers_id_seq increment by 50;
+
+alter table customers add column if not exists version int not null default 0;
+
 create index if not exists ind_customer_names on customers(name);
 
+-- Typo-tolerant search by name
+create extension if not exists pg_trgm;
+
+-- GiST serves both the % filter and the <-> nearest-first order of the candidates
+create index if not exists ind_customer_name_trigrams_gist on customers using gist(name gist_trgm_ops);
+
 create table if not exists orders(
   id serial primary key,
   customer_id int references customers(id) on delete cascade,
@@ -36,11 +71,74 @@ create table if not exists orders(
   completed boolean not null
 );
 
+alter sequence orders_id_seq increment by 50;
+
+alter table orders add column if not exists version int not null default 0;
+
 create index if not exists ind_order_customers on orders(customer_id);
 
+-- Order filter: creation date ranges, alone, per customer and for uncompleted orders
+create index if not exists ind_order_dates on orders(creationDate);
+
+create index if not exists ind_order_customer_dates on orders(customer_id, creationDate);
+
+create index if not exists ind_order_uncompleted_dates on orders(creationDate) where not completed;
+
 create table if not exists orders_books(
   order_id int references orders(id) on delete cascade,
   book_id int references books(id) on delete cascade
 );
 
-create index if not exists ind_order_books on orders_books(order_id);
\ No newline at end of file
+create index if not exists ind_order_books on orders_books(order_id);
+
+create table if not exists order_daily_rollups(
+  customer_id int references customers(id) on delete cascade,
+  day date not null,
+  books int not null,
+  completed_books int not null,
+  primary key (customer_id, day)
+);
+
+create index if not exists ind_order_daily_rollup_days on order_daily_rollups(day);
+
+-- Fills the rollups once for orders created before the table existed
+insert into order_daily_rollups(customer_id, day, books, completed_books)
+select o.customer_id, o.creationDate, count(*), count(*) filter (where o.completed)
+from orders o join orders_books ob on ob.order_id = o.id
+where not exists (select 1 from order_daily_rollups)
+group by o.customer_id, o.creationDate;
+
+create index if not exists ind_book_name_years on books(name, publicationYear);
+
+create index if not exists ind_author_fullName_birthYears on authors(fullName, birthYear);
+
+-- Staging tables of the catalog import, used by one import at a time under a transaction-level advisory lock
+create unlogged table if not exists catalog_import_rows(
+  name text not null,
+  publicationYear int not null,
+  annotation text not null,
+  authorFullName text,
+  authorBirthYear int
+);
+
+create index if not exists ind_catalog_import_books on catalog_import_rows(name, publicationYear);
+
+create index if not exists ind_catalog_import_authors on catalog_import_rows(authorFullName, authorBirthYear);
+
+create unlogged table if not exists catalog_import_new_authors(
+  rn bigserial primary key,
+  fullName text not null,
+  birthYear int not null
+);
+
+create unlogged table if not exists catalog_import_new_books(
+  rn bigserial primary key,
+  name text not null,
+  publicationYear int not null,
+  annotation text not null
+);
+
+create unlogged table if not exists catalog_import_id_blocks(
+  block bigint primary key,
+  hi bigint not null
+);
@@ -2,15 +2,21 @@ create table if not exists books(
   id serial primary key,
   name text not null,
   publicationYear int not null,
-  annotation text not null
+  annotation text not null,
+  version int default 0 not null
 );
 
+create sequence if not exists books_id_seq increment by 50;
+
 create table if not exists authors(
   id serial primary key,
   fullName text not null,
-  birthYear int not null
+  birthYear int not null,
+  version int default 0 not null
 );
 
+create sequence if not exists authors_id_seq increment by 50;
+
 create table if not exists books_authors(
   book_id int references books(id) on delete cascade,
   author_id int references authors(id) on delete cascade
@@ -19,18 +25,58 @@ create table if not exists books_authors(
 create table if not exists customers(
   id serial primary key,
   name text not null,
-  phone text not null
+  phone text not null,
+  version int default 0 not null
 );
 
+create sequence if not exists customers_id_seq increment by 50;
+
 create table if not exists orders(
   id serial primary key,
   customer_id int references customers(id) on delete cascade,
   creationDate date not null,
   completeDate date,
-  completed boolean not null
+  completed boolean not null,
+  version int default 0 not null
 );
 
+create sequence if not exists orders_id_seq increment by 50;
+
 create table if not exists orders_books(
   order_id int references orders(id) on delete cascade,
   book_id int references books(id) on delete cascade
-);
\ No newline at end of file
+);
+
+create table if not exists order_daily_rollups(
+  customer_id int references customers(id) on delete cascade,
+  day date not null,
+  books int not null,
+  completed_books int not null,
+  primary key (customer_id, day)
+);
+
+create table if not exists catalog_import_rows(
+  name text not null,
+  publicationYear int not null,
+  annotation text not null,
+  authorFullName text,
+  authorBirthYear int
+);
+
+create table if not exists catalog_import_new_authors(
+  rn bigserial primary key,
+  fullName text not null,
+  birthYear int not null
+);
+
+create table if not exists catalog_import_new_books(
+  rn bigserial primary key,
+  name text not null,
+  publicationYear int not null,
+  annotation text not null
+);
+
+create table if not exists catalog_import_id_blocks(
+  block bigint primary key,
+  hi bigint not null
+);
@@ -0,0 +1,92 @@
+package com.dmitriy.bookservice.cache;
+
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.Order;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonCacheTest {
+
+    private JsonCache jsonCache;
+
+    private AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        jsonCache = new JsonCache();
+        ReflectionTestUtils.setField(jsonCache, "enabled", true);
+        ReflectionTestUtils.setField(jsonCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(jsonCache, "expireAfterWrite", 600L);
+        jsonCache.init();
+    }
+
+    private String loadBook(int id) {
+        return jsonCache.get(Book.class, "view", id, dependencies -> {
+            dependencies.add(Author.class, 10);
+            dependencies.add(Author.class, 11);
+            dependencies.tag("\"" + id + "-" + loads.get() + "\"");
+            return "book " + id + " #" + loads.incrementAndGet();
+        });
+    }
+
+    @Test
+    public void cacheHit() {
+        String first = loadBook(1);
+        assertThat(loadBook(1)).isEqualTo(first);
+        assertThat(loads.get()).isEqualTo(1);
+
+        jsonCache.get(Book.class, "otherView", 1, dependencies -> "other");
+        assertThat(jsonCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void tagStoredWithDocument() {
+        AtomicInteger probes = new AtomicInteger();
+        assertThat(jsonCache.tag(Book.class, "view", 1, () -> "probe " + probes.incrementAndGet())).isEqualTo("probe 1");
+
+        loadBook(1);
+        assertThat(jsonCache.tag(Book.class, "view", 1, () -> "probe " + probes.incrementAndGet())).isEqualTo("\"1-0\"");
+        assertThat(probes.get()).isEqualTo(1);
+
+        jsonCache.invalidate(Author.class, 10);
+        assertThat(jsonCache.tag(Book.class, "view", 1, () -> "probe " + probes.incrementAndGet())).isEqualTo("probe 2");
+    }
+
+    @Test
+    public void invalidateByDependency() {
+        loadBook(1);
+        loadBook(2);
+
+        jsonCache.invalidate(Author.class, 11);
+        assertThat(jsonCache.size()).isEqualTo(0);
+
+        loadBook(1);
+        jsonCache.invalidate(Author.class, 12);
+        jsonCache.invalidate(Customer.class, 1);
+        assertThat(jsonCache.size()).isEqualTo(1);
+
+        jsonCache.invalidate(Book.class, Arrays.asList(1, 2));
+        assertThat(jsonCache.size()).isEqualTo(0);
+        assertThat(loads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void invalidateDuringLoad() {
+        String json = jsonCache.get(Order.class, "view", 1, dependencies -> {
+            dependencies.add(Customer.class, 5);
+            jsonCache.invalidate(Customer.class, 5);
+            return "order";
+        });
+
+        assertThat(json).isEqualTo("order");
+        assertThat(jsonCache.size()).isEqualTo(0);
+    }
+}
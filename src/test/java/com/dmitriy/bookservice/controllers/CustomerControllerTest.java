@@ -2,6 +2,7 @@ package com.dmitriy.bookservice.controllers;
 
 import com.dmitriy.bookservice.model.Customer;
 import com.dmitriy.bookservice.service.CustomerService;
+import com.dmitriy.bookservice.service.ReportJobService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
@@ -20,12 +21,15 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.util.NestedServletException;
 
 import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -41,6 +45,9 @@ public class CustomerControllerTest {
     @MockBean
     private CustomerService customerService;
 
+    @MockBean
+    private ReportJobService reportJobService;
+
     @TestConfiguration
     static class CustomerControllerTestContextConfiguration {
 
@@ -125,4 +132,24 @@ public class CustomerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", is(2)));
     }
+
+    @Test
+    public void generateOrderReportValidation() throws Exception {
+        String[] requests = {
+                "/api/generateOrderReport?startDate=13.05.2020&endDate=13.05.2020&format=xml",
+                "/api/generateOrderReport?startDate=14.05.2020&endDate=13.05.2020"
+        };
+
+        for (String request : requests) {
+            try {
+                mvc.perform(get(request));
+                fail("Report request accepted: " + request);
+            } catch (NestedServletException ex) {
+                assertTrue(ex.getCause() instanceof IllegalArgumentException);
+            }
+        }
+
+        Mockito.verify(customerService, Mockito.never())
+                .streamReportOrders(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
 }
@@ -202,4 +202,58 @@ public class AuthorControllerIntegrationTest {
             assertTrue(ex.getMessage().contains("Author (id = " + author.getId() + ") not found"));
         }
     }
+
+    @Test
+    public void suggestAuthors() throws Exception {
+        resetDb();
+
+        mvc.perform(post("/api/addAuthor")
+                .content(mapperWithoutAuthorsRef.writeValueAsString(new Author("Donald Knuth", 1938)))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        MvcResult result = mvc.perform(post("/api/addAuthor")
+                .content(mapperWithoutAuthorsRef.writeValueAsString(new Author("Donna Tartt", 1963)))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        Integer id = JsonPath.parse(result.getResponse().getContentAsString()).read("$.id");
+
+        mvc.perform(get("/api/suggestAuthors?prefix=DON")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("Donald Knuth")))
+                .andExpect(jsonPath("$[1].name", is("Donna Tartt")));
+
+        mvc.perform(get("/api/suggestAuthors?prefix=knu&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Donald Knuth")));
+
+        Author updatedAuthor = new Author("Dorothy Tartt", 1963);
+        updatedAuthor.setId(id);
+        mvc.perform(post("/api/updateAuthor")
+                .content(mapperWithoutAuthorsRef.writeValueAsString(updatedAuthor))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/suggestAuthors?prefix=tartt")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(id)))
+                .andExpect(jsonPath("$[0].name", is("Dorothy Tartt")));
+
+        mvc.perform(get("/api/deleteAuthor?id=" + id)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/suggestAuthors?prefix=do")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Donald Knuth")));
+    }
 }
@@ -1,9 +1,13 @@
 package com.dmitriy.bookservice.integration;
 
 import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Author;
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.repository.AuthorRepository;
 import com.dmitriy.bookservice.repository.BookRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.jayway.jsonpath.JsonPath;
@@ -26,8 +30,14 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -48,6 +58,9 @@ public class BookControllerIntegrationTest {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private AuthorRepository authorRepository;
+
     @TestConfiguration
     static class BookControllerTestContextConfiguration {
 
@@ -114,6 +127,111 @@ public class BookControllerIntegrationTest {
                 .andExpect(jsonPath("$.annotation", is(book.getAnnotation())));
     }
 
+    @Test
+    public void getBooksPage() throws Exception {
+
+        resetDb();
+
+        Book book1 = bookRepository.save(new Book("Book name 1", 2018, "Book annotation"));
+        Book book2 = bookRepository.save(new Book("Book name 2", 2018, "Book annotation"));
+        Book book3 = bookRepository.save(new Book("Book name 3", 2018, "Book annotation"));
+
+        mvc.perform(get("/api/getBooks?limit=2")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", is(book1.getId())))
+                .andExpect(jsonPath("$.items[0].authors").doesNotExist())
+                .andExpect(jsonPath("$.items[1].id", is(book2.getId())))
+                .andExpect(jsonPath("$.nextAfterId", is(book2.getId())));
+
+        mvc.perform(get("/api/getBooks?limit=2&afterId=" + book2.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(book3.getId())))
+                .andExpect(jsonPath("$.nextAfterId", nullValue()));
+    }
+
+    @Test
+    public void getBooksStream() throws Exception {
+
+        resetDb();
+
+        Book book1 = bookRepository.save(new Book("Book name 1", 2018, "Book annotation"));
+        Book book2 = bookRepository.save(new Book("Book name 2", 2019, "Book annotation"));
+
+        MvcResult result = mvc.perform(get("/api/getBooks?stream=true")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(book1.getId())))
+                .andExpect(jsonPath("$[0].name", is(book1.getName())))
+                .andExpect(jsonPath("$[0].authors").doesNotExist())
+                .andExpect(jsonPath("$[1].id", is(book2.getId())))
+                .andExpect(jsonPath("$[1].publicationYear", is(book2.getPublicationYear())));
+    }
+
+    @Test
+    public void searchBooks() throws Exception {
+
+        resetDb();
+
+        List<Integer> ids = new ArrayList<>();
+        for (Book book : Arrays.asList(
+                new Book("Quantum computing basics", 2018, "An introduction to quantum algorithms and qubits"),
+                new Book("Classical mechanics", 2019, "Covers the quantum limits of classical computing briefly"),
+                new Book("Gardening", 2020, "Plants and soil"))) {
+            MvcResult result = mvc.perform(post("/api/addBook")
+                    .content(mapperWithoutBooksRef.writeValueAsString(book))
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            ids.add(JsonPath.parse(result.getResponse().getContentAsString()).read("$.id"));
+        }
+
+        mvc.perform(get("/api/searchBooks?query=Quantum computing&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(ids.get(0))))
+                .andExpect(jsonPath("$.items[0].nameHighlight", is("<b>Quantum</b> <b>computing</b> basics")))
+                .andExpect(jsonPath("$.nextOffset", is(1)));
+
+        mvc.perform(get("/api/searchBooks?query=Quantum computing&offset=1&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(ids.get(1))))
+                .andExpect(jsonPath("$.items[0].annotationSnippet", containsString("<b>quantum</b>")))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+
+        Book updated = new Book("Gardening tips", 2018, "Flowers and trees");
+        updated.setId(ids.get(0));
+        mvc.perform(post("/api/updateBook")
+                .content(mapperWithoutBooksRef.writeValueAsString(updated))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/deleteBook?id=" + ids.get(1))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/searchBooks?query=quantum")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+
+        mvc.perform(get("/api/searchBooks?query=gardening")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", containsInAnyOrder(ids.get(0), ids.get(2))));
+    }
+
     @Test
     public void addBook() throws Exception {
 
@@ -181,6 +299,100 @@ public class BookControllerIntegrationTest {
                 .andExpect(jsonPath("$.annotation", is(updatedBook.getAnnotation())));
     }
 
+    @Test
+    public void conditionalGetBook() throws Exception {
+
+        resetDb();
+
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        String tag = mvc.perform(get("/api/getBookById?id=" + book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId())
+                .header("If-None-Match", tag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        String listTag = mvc.perform(get("/api/getBooks"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/getBooks")
+                .header("If-None-Match", listTag))
+                .andExpect(status().isNotModified());
+
+        Book updatedBook = new Book("Book name", 2020, "Updated book annotation");
+        updatedBook.setId(book.getId());
+        mvc.perform(post("/api/updateBook")
+                .content(mapperWithoutBooksRef.writeValueAsString(updatedBook))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId())
+                .header("If-None-Match", tag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(tag)))
+                .andExpect(jsonPath("$.publicationYear", is(2020)));
+
+        String updatedListTag = mvc.perform(get("/api/getBooks")
+                .header("If-None-Match", listTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(listTag)))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // The tag follows the rows of the table, also of writes that bypass the services
+        bookRepository.deleteAll();
+        bookRepository.save(new Book("Other book name", 2018, "Book annotation"));
+
+        mvc.perform(get("/api/getBooks")
+                .header("If-None-Match", updatedListTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(updatedListTag)));
+    }
+
+    @Test
+    public void conditionalUpdateBook() throws Exception {
+
+        resetDb();
+        authorRepository.deleteAll();
+
+        Author author = authorRepository.save(new Author("Author name", 1980));
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        String tag = mvc.perform(get("/api/getBookById?id=" + book.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        Book updatedBook = new Book("Book name", 2020, "Updated book annotation");
+        updatedBook.setId(book.getId());
+        updatedBook.getAuthors().add(author);
+        mvc.perform(post("/api/updateBook")
+                .header("If-Match", tag)
+                .content(mapperWithoutBooksRef.writeValueAsString(updatedBook))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // The second writer has read the same version
+        updatedBook.setPublicationYear(2021);
+        mvc.perform(post("/api/updateBook")
+                .header("If-Match", tag)
+                .content(mapperWithoutBooksRef.writeValueAsString(updatedBook))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(tag)))
+                .andExpect(jsonPath("$.publicationYear", is(2020)))
+                .andExpect(jsonPath("$.authors[*].fullName", contains("Author name")));
+
+        resetDb();
+        authorRepository.deleteAll();
+    }
+
     @Test
     public void deleteBook() throws Exception {
         resetDb();
@@ -206,4 +418,161 @@ public class BookControllerIntegrationTest {
             assertTrue(ex.getMessage().contains("Book (id = " + book.getId() + ") not found"));
         }
     }
+
+    @Test
+    public void bulkBooks() throws Exception {
+        resetDb();
+
+        List<Book> books = Arrays.asList(
+                new Book("Book name 1", 2018, "Book annotation"),
+                new Book("Book name 2", 2019, "Book annotation"),
+                new Book("Book name 3", 2020, "Book annotation"));
+
+        MvcResult result = mvc.perform(post("/api/addBooks")
+                .content(mapperWithoutBooksRef.writeValueAsString(books))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andReturn();
+
+        List<Integer> ids = JsonPath.parse(result.getResponse().getContentAsString()).read("$[*].id");
+        for (int i = 0; i < books.size(); i++)
+            assertThat(bookRepository.findById(ids.get(i)).get().getName(), is(books.get(i).getName()));
+
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(ids.get(i));
+            books.get(i).setAnnotation("Book annotation. Edition 2");
+        }
+
+        try {
+            mvc.perform(post("/api/updateBooks")
+                    .content(mapperWithoutBooksRef.writeValueAsString(books))
+                    .contentType(MediaType.APPLICATION_JSON));
+            fail("Books were updated without versions");
+        } catch (Exception ex) {
+            assertTrue(ex.getMessage().contains("Every updated item must have the version it is based on"));
+        }
+
+        mvc.perform(post("/api/updateBooks")
+                .content(versioned(books, 0))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/getBookById?id=" + ids.get(2))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.annotation", is("Book annotation. Edition 2")));
+
+        mvc.perform(post("/api/deleteBooks")
+                .content(mapper.writeValueAsString(ids.subList(0, 2)))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/getBooks")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(ids.get(2))));
+    }
+
+    @Test
+    public void bulkUpdateConflict() throws Exception {
+        resetDb();
+
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        // Both writers read version 0, the second one must not overwrite the first one
+        Book first = new Book("Book name", 2018, "Book annotation. Edition 2");
+        first.setId(book.getId());
+        Book second = new Book("Book name", 2018, "Book annotation. Edition 3");
+        second.setId(book.getId());
+
+        mvc.perform(post("/api/updateBooks")
+                .content(versioned(Collections.singletonList(first), 0))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/api/updateBooks")
+                .content(versioned(Collections.singletonList(second), 0))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.annotation", is("Book annotation. Edition 2")));
+    }
+
+    private String versioned(List<Book> books, int version) {
+        ArrayNode items = mapperWithoutBooksRef.valueToTree(books);
+        items.forEach(item -> ((ObjectNode)item).put("version", version));
+        return items.toString();
+    }
+
+    @Test
+    public void filterBooks() throws Exception {
+
+        resetDb();
+        authorRepository.deleteAll();
+
+        Author author = authorRepository.save(new Author("Donald Knuth", 1938));
+
+        Book programming = new Book("The Art of Computer Programming", 1968, "Algorithms");
+        programming.getAuthors().add(author);
+        Book mathematics = new Book("Concrete Mathematics", 1994, "Mathematics");
+        mathematics.getAuthors().add(author);
+        bookRepository.saveAll(Arrays.asList(programming, mathematics,
+                new Book("The Art of War", 1995, "Strategy"), new Book("Thinking in Java", 1998, "Java")));
+
+        mvc.perform(get("/api/filterBooks?yearFrom=1990&yearTo=2000&sort=-publicationYear")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", contains("Thinking in Java", "The Art of War", "Concrete Mathematics")))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+
+        mvc.perform(get("/api/filterBooks?authorId=" + author.getId() + "&namePrefix=The")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", contains("The Art of Computer Programming")));
+
+        mvc.perform(get("/api/filterBooks?namePrefix=The Art&sort=name&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", contains("The Art of Computer Programming")))
+                .andExpect(jsonPath("$.nextOffset", is(1)));
+
+        mvc.perform(get("/api/filterBooks?namePrefix=The Art&sort=name&limit=1&offset=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", contains("The Art of War")))
+                .andExpect(jsonPath("$.nextOffset").doesNotExist());
+
+        resetDb();
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    public void getBooksByIds() throws Exception {
+
+        resetDb();
+        authorRepository.deleteAll();
+
+        Author author = authorRepository.save(new Author("Author name", 1980));
+        Book book = new Book("Book name", 2018, "Book annotation");
+        book.getAuthors().add(author);
+        book = bookRepository.save(book);
+        Book otherBook = bookRepository.save(new Book("Other book name", 2019, "Other book annotation"));
+        int missingId = otherBook.getId() + 1000;
+
+        mvc.perform(get("/api/getBooksByIds?ids=" + otherBook.getId() + "," + missingId + "," + book.getId() + "," + otherBook.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].name", contains("Book name", "Other book name")))
+                .andExpect(jsonPath("$.items[0].authors[*].fullName", contains("Author name")))
+                .andExpect(jsonPath("$.items[1].authors", hasSize(0)))
+                .andExpect(jsonPath("$.missingIds", contains(missingId)));
+
+        resetDb();
+        authorRepository.deleteAll();
+    }
 }
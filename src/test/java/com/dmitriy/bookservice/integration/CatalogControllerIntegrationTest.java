@@ -0,0 +1,118 @@
+package com.dmitriy.bookservice.integration;
+
+import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
+import com.dmitriy.bookservice.repository.AuthorRepository;
+import com.dmitriy.bookservice.repository.BookRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = BookserviceApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@TestPropertySource(locations = "classpath:test.properties")
+@Sql(scripts = "classpath:test-schema.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class CatalogControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void resetDb() {
+        jdbcTemplate.update("delete from books_authors");
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    public void importCatalog() throws Exception {
+
+        resetDb();
+
+        Book existing = bookRepository.save(new Book("Book name 1", 2018, "Book annotation"));
+        authorRepository.save(new Author("Author name 1", 1980));
+
+        String csv = "name,publicationYear,annotation,authorFullName,authorBirthYear\n" +
+                "Book name 1,2018,Book annotation. Edition 2,Author name 1,1980\n" +
+                "Book name 1,2018,Book annotation. Edition 2,Author name 2,1985\n" +
+                "Book name 2,2019,Book annotation,Author name 2,1985\n" +
+                "Book name 3,2020,Book annotation,,\n";
+
+        mvc.perform(post("/api/importCatalog?format=csv")
+                .content(csv)
+                .contentType(MediaType.TEXT_PLAIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(4)))
+                .andExpect(jsonPath("$.authorsAdded", is(1)))
+                .andExpect(jsonPath("$.booksAdded", is(2)))
+                .andExpect(jsonPath("$.booksUpdated", is(1)))
+                .andExpect(jsonPath("$.linksAdded", is(3)));
+
+        mvc.perform(get("/api/getBookById?id=" + existing.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.annotation", is("Book annotation. Edition 2")))
+                .andExpect(jsonPath("$.authors", hasSize(2)));
+
+        String ndjson = "{\"name\": \"Book name 2\", \"publicationYear\": 2019, \"annotation\": \"Book annotation\", " +
+                "\"authors\": [{\"fullName\": \"Author name 2\", \"birthYear\": 1985}, {\"fullName\": \"Author name 3\", \"birthYear\": 1990}]}\n" +
+                "{\"name\": \"Book name 4\", \"publicationYear\": 2021, \"annotation\": \"Book annotation\", \"authors\": []}\n";
+
+        mvc.perform(post("/api/importCatalog?format=ndjson")
+                .content(ndjson)
+                .contentType(MediaType.TEXT_PLAIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(3)))
+                .andExpect(jsonPath("$.authorsAdded", is(1)))
+                .andExpect(jsonPath("$.booksAdded", is(1)))
+                .andExpect(jsonPath("$.booksUpdated", is(0)))
+                .andExpect(jsonPath("$.linksAdded", is(1)));
+
+        assertThat(bookRepository.count(), is(4L));
+        assertThat(authorRepository.count(), is(3L));
+
+        List<BookWithAuthors> books = bookRepository.findDetailsByName("Book name 2");
+        assertThat(books, hasSize(1));
+        mvc.perform(get("/api/getBookById?id=" + books.get(0).getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authors[*].fullName", containsInAnyOrder("Author name 2", "Author name 3")));
+
+        // New rows take their IDs from the entity sequences
+        Book added = bookRepository.save(new Book("Book name 5", 2022, "Book annotation"));
+        assertThat(bookRepository.findById(added.getId()).get().getName(), is("Book name 5"));
+        assertThat(bookRepository.count(), is(5L));
+    }
+}
@@ -1,8 +1,13 @@
 package com.dmitriy.bookservice.integration;
 
 import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Book;
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.repository.BookRepository;
 import com.dmitriy.bookservice.repository.CustomerRepository;
+import com.dmitriy.bookservice.service.BookService;
+import com.dmitriy.bookservice.service.OrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
@@ -26,13 +31,22 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -51,6 +65,15 @@ public class CustomerControllerIntegrationTest {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private BookService bookService;
+
     @TestConfiguration
     static class CustomerControllerTestContextConfiguration {
 
@@ -114,6 +137,41 @@ public class CustomerControllerIntegrationTest {
                 .andExpect(jsonPath("$.phone", is(customer.getPhone())));
     }
 
+    @Test
+    public void searchCustomersByName() throws Exception {
+
+        resetDb();
+
+        for (Customer customer : Arrays.asList(new Customer("Ivanov Ivan", "+7-111-111-11-11"),
+                new Customer("Ivanova Maria", "+7-222-222-22-22"), new Customer("Petrov Petr", "+7-333-333-33-33"))) {
+            mvc.perform(post("/api/addCustomer")
+                    .content(mapperWithoutOrdersRef.writeValueAsString(customer))
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        mvc.perform(get("/api/searchCustomersByName?name=Ivan Ivonov")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Ivanov Ivan")))
+                .andExpect(jsonPath("$[0].phone", is("+7-111-111-11-11")));
+
+        mvc.perform(get("/api/searchCustomersByName?name=ivan ivanova")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name", is("Ivanov Ivan")))
+                .andExpect(jsonPath("$[1].name", is("Ivanova Maria")));
+
+        mvc.perform(get("/api/searchCustomersByName?name=Ivan Ivanov&limit=1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", is("Ivanov Ivan")))
+                .andExpect(jsonPath("$[0].similarity", is(1.0)));
+    }
+
     @Test
     public void addCustomer() throws Exception {
 
@@ -202,4 +260,68 @@ public class CustomerControllerIntegrationTest {
             assertTrue(ex.getMessage().contains("Customer (id = " + customer.getId() + ") not found"));
         }
     }
+
+    @Test
+    public void generateOrderReport() throws Exception {
+        resetDb();
+        bookRepository.deleteAll();
+
+        SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+        Customer first = customerRepository.save(new Customer("Customer name 1", "+7-111-111-11-11"));
+        Customer second = customerRepository.save(new Customer("Customer name 2", "+7-222-222-22-22"));
+        Book book1 = bookRepository.save(new Book("Book name 1", 2018, "Book annotation"));
+        Book book2 = bookRepository.save(new Book("Book name 2", 2019, "Book annotation"));
+
+        Order order1 = new Order(first, format.parse("13.05.2020"));
+        order1.setBooks(new HashSet<>(Arrays.asList(book1, book2)));
+        order1 = orderService.add(order1);
+
+        Order order2 = new Order(first, format.parse("14.05.2020"));
+        order2.setBooks(new HashSet<>(Arrays.asList(book1)));
+        orderService.add(order2);
+
+        Order order3 = new Order(second, format.parse("13.05.2020"));
+        order3.setBooks(new HashSet<>(Arrays.asList(book2)));
+        order3 = orderService.add(order3);
+
+        Order outOfRange = new Order(second, format.parse("20.05.2020"));
+        outOfRange.setBooks(new HashSet<>(Arrays.asList(book1)));
+        orderService.add(outOfRange);
+
+        orderService.completeById(order1.getId());
+
+        String report = "/api/generateOrderReport?startDate=13.05.2020&endDate=14.05.2020";
+        assertThat(reportLines(report), containsInAnyOrder(
+                "{\"name\":\"Customer name 1\",\"phone\":\"+7-111-111-11-11\",\"bookCount\":3}",
+                "{\"name\":\"Customer name 2\",\"phone\":\"+7-222-222-22-22\",\"bookCount\":1}"));
+
+        assertThat(reportLines(report + "&onlyCompleted=true"), containsInAnyOrder(
+                "{\"name\":\"Customer name 1\",\"phone\":\"+7-111-111-11-11\",\"bookCount\":2}"));
+
+        assertThat(reportLines(report + "&onlyCompleted=false"), containsInAnyOrder(
+                "{\"name\":\"Customer name 1\",\"phone\":\"+7-111-111-11-11\",\"bookCount\":3,\"completed\":false}",
+                "{\"name\":\"Customer name 2\",\"phone\":\"+7-222-222-22-22\",\"bookCount\":1,\"completed\":false}"));
+
+        order3.setCompleted(true);
+        order3.setBooks(new HashSet<>(Arrays.asList(book1, book2)));
+        orderService.update(order3);
+        orderService.delete(order2.getId());
+        bookService.delete(book2.getId());
+
+        assertThat(reportLines(report + "&onlyCompleted=false&format=csv"), containsInAnyOrder(
+                "name,phone,bookCount,completed",
+                "Customer name 1,+7-111-111-11-11,1,true",
+                "Customer name 2,+7-222-222-22-22,1,true"));
+    }
+
+    private List<String> reportLines(String url) throws Exception {
+        MvcResult result = mvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String content = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Arrays.asList(content.split("\n"));
+    }
 }
@@ -0,0 +1,103 @@
+package com.dmitriy.bookservice.integration;
+
+import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.repository.BookRepository;
+import com.dmitriy.bookservice.repository.CustomerRepository;
+import com.dmitriy.bookservice.repository.OrderRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = BookserviceApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@TestPropertySource(locations = "classpath:test.properties")
+@Sql(scripts = "classpath:test-schema.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class ExportControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @After
+    public void resetDb() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void exportOrders() throws Exception {
+
+        resetDb();
+
+        SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+        Customer customer = customerRepository.save(new Customer("Customer name", "+7-111-111-11-11"));
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        Order may = new Order(customer, format.parse("13.05.2020"));
+        may.setBooks(Collections.singleton(book));
+        orderRepository.save(may);
+        orderRepository.save(new Order(customer, format.parse("13.06.2020")));
+
+        MvcResult result = mvc.perform(get("/api/exportTable?table=orders&from=01.05.2020&to=31.05.2020"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", startsWith("text/csv")))
+                .andExpect(content().string("id,customer_id,creationDate,completeDate,completed\n" +
+                        may.getId() + "," + customer.getId() + ",2020-05-13,,f\n"));
+
+        result = mvc.perform(get("/api/exportTable?table=orders_books&from=01.05.2020"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("order_id,book_id\n" + may.getId() + "," + book.getId() + "\n"));
+
+        result = mvc.perform(get("/api/exportTable?table=customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String csv = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(csv, is("id,name,phone\n" + customer.getId() + ",Customer name,+7-111-111-11-11\n"));
+    }
+}
@@ -12,6 +12,7 @@ import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.jayway.jsonpath.JsonPath;
 import org.hamcrest.core.IsNull;
+import org.hibernate.Cache;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -31,11 +32,14 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.persistence.EntityManagerFactory;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -60,6 +64,9 @@ public class MainIntegrationTest {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @TestConfiguration
     static class MainTestContextConfiguration {
 
@@ -374,4 +381,51 @@ public class MainIntegrationTest {
                 .andExpect(jsonPath("$[0].books", hasSize(1)))
                 .andExpect(jsonPath("$[1].books", hasSize(2)));
     }
+
+    @Test
+    public void secondLevelCache() throws Exception {
+
+        resetDb();
+
+        Author author = authorRepository.save(new Author("Author name", 1950));
+        Book book = new Book("Book name", 2001, "Book annotation");
+        book.getAuthors().add(author);
+        book = bookRepository.save(book);
+        entityManagerFactory.getCache().evictAll();
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authors", hasSize(1)));
+
+        mvc.perform(get("/api/getAuthorById?id=" + author.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(1)));
+
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        assertTrue(cache.containsEntity(Book.class, book.getId()));
+        assertTrue(cache.containsEntity(Author.class, author.getId()));
+        assertTrue(cache.containsCollection(Book.class.getName() + ".authors", book.getId()));
+        assertTrue(cache.containsCollection(Author.class.getName() + ".books", author.getId()));
+
+        Book updatedBook = new Book("Book name", 2001, "Book annotation");
+        updatedBook.setId(book.getId());
+
+        mvc.perform(post("/api/updateBook")
+                .content(mapperWithoutBooksRef.writeValueAsString(updatedBook))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/getAuthorById?id=" + author.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(0)));
+
+        mvc.perform(get("/api/deleteBook?id=" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertFalse(bookRepository.findById(book.getId()).isPresent());
+    }
 }
@@ -1,10 +1,13 @@
 package com.dmitriy.bookservice.integration;
 
 import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Book;
 import com.dmitriy.bookservice.model.Customer;
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.repository.BookRepository;
 import com.dmitriy.bookservice.repository.CustomerRepository;
 import com.dmitriy.bookservice.repository.OrderRepository;
+import com.dmitriy.bookservice.service.OrderService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
@@ -23,6 +26,7 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -30,15 +34,28 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
-
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -60,6 +77,15 @@ public class OrderControllerIntegrationTest {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @TestConfiguration
     static class OrderControllerTestContextConfiguration {
 
@@ -140,6 +166,53 @@ public class OrderControllerIntegrationTest {
                 .andExpect(jsonPath("$.customer.phone", is("+7-111-111-11-11")));
     }
 
+    @Test
+    public void getOrdersMetrics() throws Exception {
+
+        resetDb();
+
+        Customer customer = new Customer("Customer name", "+7-111-111-11-11");
+        customerRepository.save(customer);
+        orderRepository.save(new Order(customer, date));
+
+        mvc.perform(get("/api/getOrders")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_count{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/api/getOrders\",}")))
+                .andExpect(content().string(containsString("service_calls_seconds_count{class=\"OrderServiceImpl\",exception=\"none\",method=\"findAll\",}")))
+                .andExpect(content().string(containsString("repository_calls_seconds_count{class=\"OrderRepository\",exception=\"none\",method=\"findViews\",}")))
+                .andExpect(content().string(containsString("json_serialization_seconds_count{view=\"withoutBooksAndOrdersRef\",}")))
+                .andExpect(content().string(containsString("json_serialization_size_chars_count{view=\"withoutBooksAndOrdersRef\",}")));
+    }
+
+    @Test
+    public void getOrdersStream() throws Exception {
+
+        resetDb();
+
+        Customer customer = new Customer("Customer name", "+7-111-111-11-11");
+        customerRepository.save(customer);
+        orderRepository.save(new Order(customer, date));
+        orderRepository.save(new Order(customer, date));
+
+        MvcResult result = mvc.perform(get("/api/getOrders?stream=true")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].creationDate", is(formatted)))
+                .andExpect(jsonPath("$[0].completed", is(false)))
+                .andExpect(jsonPath("$[0].books").doesNotExist())
+                .andExpect(jsonPath("$[0].customer.name", is("Customer name")))
+                .andExpect(jsonPath("$[1].customer.phone", is("+7-111-111-11-11")));
+    }
+
     @Test
     public void addOrder() throws Exception {
 
@@ -251,4 +324,180 @@ public class OrderControllerIntegrationTest {
             assertTrue(ex.getMessage().contains("Order (id = " + order.getId() + ") not found"));
         }
     }
+
+    @Test
+    public void filterOrders() throws Exception {
+
+        resetDb();
+
+        SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+        Customer customer = customerRepository.save(new Customer("Customer name", "+7-111-111-11-11"));
+        Customer otherCustomer = customerRepository.save(new Customer("Other customer name", "+7-222-222-22-22"));
+
+        for (String day : new String[] {"10.05.2020", "12.05.2020", "14.05.2020", "20.05.2020"}) {
+            Order order = new Order(customer, format.parse(day));
+            if (day.equals("12.05.2020")) {
+                order.setCompleted(true);
+                order.setCompleteDate(format.parse("13.05.2020"));
+            }
+            orderRepository.save(order);
+        }
+        orderRepository.save(new Order(otherCustomer, format.parse("14.05.2020")));
+
+        mvc.perform(get("/api/filterOrders?customerId=" + customer.getId() + "&completed=false&createdFrom=11.05.2020&createdTo=17.05.2020")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].creationDate", contains("14.05.2020")))
+                .andExpect(jsonPath("$.items[0].customer.name", is("Customer name")));
+
+        mvc.perform(get("/api/filterOrders?completed=true")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].creationDate", contains("12.05.2020")))
+                .andExpect(jsonPath("$.items[0].completeDate", is("13.05.2020")));
+
+        mvc.perform(get("/api/filterOrders?customerId=" + customer.getId() + "&sort=-creationDate&limit=3")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].creationDate", contains("20.05.2020", "14.05.2020", "12.05.2020")))
+                .andExpect(jsonPath("$.nextOffset", is(3)));
+
+        mvc.perform(get("/api/filterOrders?createdFrom=14.05.2020&createdTo=14.05.2020")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)));
+    }
+
+    @Test
+    public void getOrdersByIds() throws Exception {
+
+        resetDb();
+
+        Customer customer = customerRepository.save(new Customer("Customer name", "+7-111-111-11-11"));
+        Order order = orderRepository.save(new Order(customer, date));
+
+        mvc.perform(get("/api/getOrdersByIds?ids=" + order.getId() + "," + (order.getId() + 1000))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(order.getId())))
+                .andExpect(jsonPath("$.items[0].creationDate", is(formatted)))
+                .andExpect(jsonPath("$.items[0].customer.name", is("Customer name")))
+                .andExpect(jsonPath("$.items[0].books", hasSize(0)))
+                .andExpect(jsonPath("$.missingIds", contains(order.getId() + 1000)));
+    }
+
+    @Test
+    public void completeOrdersConcurrently() throws Exception {
+
+        resetDb();
+
+        Customer customer = customerRepository.save(new Customer("Customer name", "+7-111-111-11-11"));
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        List<Integer> orderIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Order order = new Order(customer, date);
+            order.getBooks().add(book);
+            orderIds.add(orderService.add(order).getId());
+        }
+
+        // Every order is completed by several workers at once, exactly one of them must succeed
+        int workers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Integer id : orderIds) {
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.completeById(id);
+                        completed.incrementAndGet();
+                    } catch (IllegalArgumentException ex) {
+                        assertTrue(ex.getMessage().endsWith("already completed"));
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        start.countDown();
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+
+        assertEquals(orderIds.size(), completed.get());
+        assertEquals(orderIds.size() * (workers - 1), rejected.get());
+        assertEquals(Integer.valueOf(orderIds.size()), jdbcTemplate.queryForObject(
+                "select completed_books from order_daily_rollups where customer_id = ?", Integer.class, customer.getId()));
+
+        mvc.perform(get("/api/filterOrders?customerId=" + customer.getId() + "&completed=false&limit=100")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+
+        try {
+            orderService.completeById(orderIds.get(orderIds.size() - 1) + 1000);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().endsWith("not found"));
+        }
+
+        resetDb();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void completeOrders() throws Exception {
+
+        resetDb();
+
+        Customer customer = customerRepository.save(new Customer("Customer name", "+7-111-111-11-11"));
+        Customer otherCustomer = customerRepository.save(new Customer("Other customer", "+7-222-222-22-22"));
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+        Date yesterday = new Date(date.getTime() - 24 * 60 * 60 * 1000);
+
+        List<Integer> ids = new ArrayList<>();
+        for (Customer owner : new Customer[] {customer, customer, customer, otherCustomer}) {
+            Order order = new Order(owner, ids.size() == 2 ? yesterday : date);
+            order.getBooks().add(book);
+            ids.add(orderService.add(order).getId());
+        }
+        orderService.completeById(ids.get(1));
+        int missingId = ids.get(3) + 1000;
+
+        mvc.perform(post("/api/completeOrders")
+                .content(mapper.writeValueAsString(new int[] {missingId, ids.get(1), ids.get(0)}))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completedIds", contains(ids.get(0))))
+                .andExpect(jsonPath("$.alreadyCompletedIds", contains(ids.get(1))))
+                .andExpect(jsonPath("$.missingIds", contains(missingId)));
+
+        mvc.perform(post("/api/completeCustomerOrders?customerId=" + customer.getId() +
+                "&createdFrom=" + new SimpleDateFormat("dd.MM.yyyy").format(yesterday) + "&createdTo=" + formatted)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completedIds", contains(ids.get(2))))
+                .andExpect(jsonPath("$.alreadyCompletedIds", contains(ids.get(0), ids.get(1))))
+                .andExpect(jsonPath("$.missingIds", hasSize(0)));
+
+        mvc.perform(get("/api/getOrderById?id=" + ids.get(3))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed", is(false)));
+
+        assertEquals(Integer.valueOf(3), jdbcTemplate.queryForObject(
+                "select sum(completed_books) from order_daily_rollups where customer_id = ?", Integer.class, customer.getId()));
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject(
+                "select sum(completed_books) from order_daily_rollups where customer_id = ?", Integer.class, otherCustomer.getId()));
+
+        resetDb();
+        bookRepository.deleteAll();
+    }
 }
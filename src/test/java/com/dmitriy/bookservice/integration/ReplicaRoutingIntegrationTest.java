@@ -0,0 +1,130 @@
+package com.dmitriy.bookservice.integration;
+
+import com.dmitriy.bookservice.BookserviceApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.http.Cookie;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Primary and replica are two separate in-memory databases, so every read shows where it was routed
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = BookserviceApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:test.properties", properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=" + ReplicaRoutingIntegrationTest.REPLICA_URL,
+        "datasource.replica.username=sa",
+        "datasource.replica.password=",
+        "datasource.replica.read-your-writes=5"
+})
+@Sql(scripts = "classpath:test-schema.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    static final String REPLICA_URL =
+            "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:test-schema.sql'";
+
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @After
+    public void resetDb() {
+        jdbcTemplate.update("delete from books");
+        replica.update("delete from books");
+    }
+
+    @Test
+    public void routeReadsToReplica() throws Exception {
+
+        resetDb();
+
+        replica.update(
+                "insert into books(id, name, publicationYear, annotation) values (1000, 'Replica book', 2020, 'Annotation')");
+
+        MvcResult result = mvc.perform(post("/api/addBook")
+                .content("{\"name\": \"Primary book\", \"publicationYear\": 2020, \"annotation\": \"Annotation\"}")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(cookie().maxAge("bookservice-primary", 5))
+                .andReturn();
+
+        Cookie primary = result.getResponse().getCookie("bookservice-primary");
+        assertNotNull(primary);
+
+        mvc.perform(get("/api/getBooks")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Replica book")));
+
+        mvc.perform(get("/api/getBooks")
+                .cookie(primary)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("Primary book")));
+
+        // Reads that are not read-only transactions always go to the primary, without keeping the client there
+        Integer id = jdbcTemplate.queryForObject("select id from books", Integer.class);
+        mvc.perform(get("/api/getBookById?id=" + id)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(cookie().doesNotExist("bookservice-primary"))
+                .andExpect(jsonPath("$.name", is("Primary book")));
+
+        mvc.perform(post("/api/deleteBooks")
+                .content("[" + id + "]")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertEquals(Integer.valueOf(0), jdbcTemplate.queryForObject("select count(*) from books", Integer.class));
+        assertEquals(Integer.valueOf(1), replica.queryForObject("select count(*) from books", Integer.class));
+    }
+
+    @Test
+    public void publishPoolMetrics() throws Exception {
+
+        mvc.perform(get("/api/getBooks")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        for (String pool : new String[] {"primary", "replica"}) {
+            assertTrue(meterRegistry.get("hikaricp.connections.acquire").tag("pool", pool).timer().count() > 0);
+            assertNotNull(meterRegistry.get("hikaricp.connections.pending").tag("pool", pool).gauge());
+        }
+
+        mvc.perform(get("/actuator/metrics/hikaricp.connections.active"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableTags[?(@.tag == 'pool')].values[*]", containsInAnyOrder("primary", "replica")));
+    }
+}
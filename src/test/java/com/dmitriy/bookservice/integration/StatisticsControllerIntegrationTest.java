@@ -0,0 +1,107 @@
+package com.dmitriy.bookservice.integration;
+
+import com.dmitriy.bookservice.BookserviceApplication;
+import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.repository.BookRepository;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = BookserviceApplication.class)
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+@TestPropertySource(locations = "classpath:test.properties", properties = "sql.slow-queries.threshold=0")
+@Sql(scripts = "classpath:test-schema.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+public class StatisticsControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @After
+    public void resetDb() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void getSqlStatistics() throws Exception {
+
+        resetDb();
+
+        bookRepository.save(new Book("Book name 1", 2018, "Book annotation"));
+        bookRepository.save(new Book("Book name 2", 2019, "Book annotation"));
+
+        mvc.perform(get("/api/getBooks")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        String response = mvc.perform(get("/api/getSqlStatistics?limit=1000")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hibernate.enabled", is(true)))
+                .andExpect(jsonPath("$.hibernate.transactions", greaterThan(0)))
+                .andReturn().getResponse().getContentAsString();
+
+        List<Integer> rows = JsonPath.parse(response).read("$.statements[?(@.sql =~ /select .* from books .*/)].rows");
+        assertThat(rows.stream().mapToInt(Integer::intValue).sum(), greaterThanOrEqualTo(2));
+
+        List<Integer> inserted = JsonPath.parse(response).read("$.statements[?(@.sql =~ /insert into books.*/)].rows");
+        assertThat(inserted.stream().mapToInt(Integer::intValue).sum(), greaterThanOrEqualTo(2));
+    }
+
+    @Test
+    public void getSlowQueries() throws Exception {
+
+        resetDb();
+
+        Book book = bookRepository.save(new Book("Book name", 2018, "Book annotation"));
+
+        mvc.perform(get("/api/getBookById?id=" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // Plans are written by a background thread
+        List<String> plans = null;
+        for (int i = 0; i < 50; i++) {
+            String response = mvc.perform(get("/api/getSlowQueries")
+                    .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", not(empty())))
+                    .andReturn().getResponse().getContentAsString();
+
+            plans = JsonPath.parse(response).read("$[?(@.sql =~ /select .* from books .* where .*/)].plan");
+            if (!plans.isEmpty() && plans.get(0) != null)
+                break;
+
+            Thread.sleep(100);
+        }
+
+        assertNotNull(plans);
+        assertFalse(plans.isEmpty());
+        assertThat(plans.get(0), containsString("BOOKS"));
+    }
+}
@@ -1,6 +1,7 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.projection.AuthorWithBooks;
 import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -11,6 +12,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.validation.ConstraintViolationException;
+import java.util.Calendar;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,7 +37,7 @@ public class AuthorRepositoryTest {
         entityManager.persist(author);
         entityManager.flush();
 
-        List<Author> found = authorRepository.findByFullName(author.getFullName());
+        List<AuthorWithBooks> found = authorRepository.findDetailsByFullName(author.getFullName());
         assertThat(found.get(0).getFullName()).isEqualTo(author.getFullName());
         assertThat(found.get(0).getBirthYear()).isEqualTo(author.getBirthYear());
 
@@ -55,7 +57,7 @@ public class AuthorRepositoryTest {
         Author saved = authorRepository.save(author);
         assertThat(saved).isEqualTo(author);
 
-        List<Author> found = authorRepository.findByFullName("Author name");
+        List<AuthorWithBooks> found = authorRepository.findDetailsByFullName("Author name");
         assertThat(found.get(0).getFullName()).isEqualTo("Author name");
         assertThat(found.get(0).getBirthYear()).isEqualTo(1980);
     }
@@ -71,9 +73,9 @@ public class AuthorRepositoryTest {
 
         authorRepository.save(updatedAuthor);
 
-        List<Author> found = authorRepository.findByFullName("Author name");
+        List<AuthorWithBooks> found = authorRepository.findDetailsByFullName("Author name");
         assertEquals(found.size(), 0);
-        List<Author> found2 = authorRepository.findByFullName("Author name 2");
+        List<AuthorWithBooks> found2 = authorRepository.findDetailsByFullName("Author name 2");
         assertEquals(found2.size(), 1);
         assertThat(found2.get(0).getFullName()).isEqualTo("Author name 2");
         assertThat(found2.get(0).getBirthYear()).isEqualTo(1983);
@@ -87,7 +89,7 @@ public class AuthorRepositoryTest {
 
         authorRepository.deleteById(author.getId());
 
-        List<Author> found = authorRepository.findByFullName("Author name");
+        List<AuthorWithBooks> found = authorRepository.findDetailsByFullName("Author name");
         assertEquals(found.size(), 0);
         Optional<Author> found2 = authorRepository.findById(author.getId());
         assertFalse(found2.isPresent());
@@ -101,29 +103,41 @@ public class AuthorRepositoryTest {
 
         try {
             authorRepository.save(author);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         author = new Author(null, 1980);
 
         try {
             authorRepository.save(author);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         author = new Author("Author name", 0);
 
         try {
             authorRepository.save(author);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
-        author = new Author("Author name", 2025);
+        author = new Author("Author name", Calendar.getInstance().get(Calendar.YEAR) + 1);
 
         try {
             authorRepository.save(author);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
     }
 
 }
@@ -1,16 +1,22 @@
 package com.dmitriy.bookservice.repository;
 
+import com.dmitriy.bookservice.model.Author;
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
 import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.validation.ConstraintViolationException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,7 +40,7 @@ public class BookRepositoryTest {
         entityManager.persist(book);
         entityManager.flush();
 
-        List<Book> found = bookRepository.findByName(book.getName());
+        List<BookWithAuthors> found = bookRepository.findDetailsByName(book.getName());
         assertThat(found.get(0).getName()).isEqualTo(book.getName());
         assertThat(found.get(0).getAnnotation()).isEqualTo(book.getAnnotation());
         assertThat(found.get(0).getPublicationYear()).isEqualTo(book.getPublicationYear());
@@ -48,6 +54,47 @@ public class BookRepositoryTest {
         assertThat(found3.get(0).getName()).isEqualTo(book.getName());
     }
 
+    @Test
+    public void getBooksPage() {
+        Book book1 = entityManager.persist(new Book("Book name 1", 2018, "Book annotation"));
+        Book book2 = entityManager.persist(new Book("Book name 2", 2018, "Book annotation"));
+        Book book3 = entityManager.persist(new Book("Book name 3", 2018, "Book annotation"));
+        entityManager.flush();
+
+        List<BookView> found = bookRepository.findViewsByIdGreaterThan(0, PageRequest.of(0, 2));
+        assertEquals(found.size(), 2);
+        assertThat(found.get(0).getId()).isEqualTo(book1.getId());
+        assertThat(found.get(1).getId()).isEqualTo(book2.getId());
+
+        found = bookRepository.findViewsByIdGreaterThan(book2.getId(), PageRequest.of(0, 2));
+        assertEquals(found.size(), 1);
+        assertThat(found.get(0).getId()).isEqualTo(book3.getId());
+    }
+
+    @Test
+    public void getBookViews() {
+        Author author = entityManager.persist(new Author("Author name", 1950));
+        Book book = new Book("Book name", 2018, "Book annotation");
+        book.getAuthors().add(author);
+        entityManager.persist(book);
+        entityManager.persist(new Book("Other book", 2019, "Book annotation"));
+        entityManager.flush();
+
+        List<BookWithAuthors> details = bookRepository.findDetailsByIds(Collections.singleton(book.getId()));
+        assertEquals(details.size(), 1);
+        assertThat(details.get(0).getName()).isEqualTo("Book name");
+        assertThat(details.get(0).getPublicationYear()).isEqualTo(2018);
+
+        List<AuthorView> authors = bookRepository.findAuthorsByBookIds(Collections.singleton(book.getId()));
+        assertEquals(authors.size(), 1);
+        assertThat(authors.get(0).getOwnerId()).isEqualTo(book.getId());
+        assertThat(authors.get(0).getFullName()).isEqualTo("Author name");
+
+        List<BookView> views = bookRepository.findViewsByIdGreaterThan(book.getId(), PageRequest.of(0, 10));
+        assertEquals(views.size(), 1);
+        assertThat(views.get(0).getName()).isEqualTo("Other book");
+    }
+
     @Test
     public void addBook() {
         Book book = new Book("Book name", 2018, "Book annotation");
@@ -55,7 +102,7 @@ public class BookRepositoryTest {
         Book saved = bookRepository.save(book);
         assertThat(saved).isEqualTo(book);
 
-        List<Book> found = bookRepository.findByName("Book name");
+        List<BookWithAuthors> found = bookRepository.findDetailsByName("Book name");
         assertThat(found.get(0).getName()).isEqualTo("Book name");
         assertThat(found.get(0).getAnnotation()).isEqualTo("Book annotation");
         assertThat(found.get(0).getPublicationYear()).isEqualTo(2018);
@@ -72,7 +119,7 @@ public class BookRepositoryTest {
 
         bookRepository.save(updatedBook);
 
-        List<Book> found = bookRepository.findByName("Book name");
+        List<BookWithAuthors> found = bookRepository.findDetailsByName("Book name");
         assertThat(found.get(0).getName()).isEqualTo("Book name");
         assertThat(found.get(0).getAnnotation()).isEqualTo("Book annotation. Edition 2");
         assertThat(found.get(0).getPublicationYear()).isEqualTo(2019);
@@ -86,7 +133,7 @@ public class BookRepositoryTest {
 
         bookRepository.deleteById(book.getId());
 
-        List<Book> found = bookRepository.findByName("Book name");
+        List<BookWithAuthors> found = bookRepository.findDetailsByName("Book name");
         assertEquals(found.size(), 0);
         Optional<Book> found2 = bookRepository.findById(book.getId());
         assertFalse(found2.isPresent());
@@ -100,42 +147,60 @@ public class BookRepositoryTest {
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         book = new Book(null, 2018, "Book annotation");
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         book = new Book("Book name", 2018, "");
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         book = new Book("Book name", 2018, null);
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         book = new Book("Book name", 0, "Book annotation");
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         book = new Book("Book name", 2030, "Book annotation");
 
         try {
             bookRepository.save(book);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
     }
 }
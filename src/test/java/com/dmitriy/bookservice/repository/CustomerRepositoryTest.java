@@ -1,6 +1,7 @@
 package com.dmitriy.bookservice.repository;
 
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.CustomerWithOrders;
 import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,7 +36,7 @@ public class CustomerRepositoryTest {
         entityManager.persist(customer);
         entityManager.flush();
 
-        List<Customer> found = customerRepository.findByName(customer.getName());
+        List<CustomerWithOrders> found = customerRepository.findDetailsByName(customer.getName());
         assertThat(found.get(0).getName()).isEqualTo(customer.getName());
         assertThat(found.get(0).getPhone()).isEqualTo(customer.getPhone());
 
@@ -57,7 +58,7 @@ public class CustomerRepositoryTest {
         Customer saved = customerRepository.save(customer);
         assertThat(saved).isEqualTo(customer);
 
-        List<Customer> found = customerRepository.findByName("Customer name");
+        List<CustomerWithOrders> found = customerRepository.findDetailsByName("Customer name");
         assertThat(found.get(0).getName()).isEqualTo(customer.getName());
         assertThat(found.get(0).getPhone()).isEqualTo(customer.getPhone());
     }
@@ -73,9 +74,9 @@ public class CustomerRepositoryTest {
 
         customerRepository.save(updatedCustomer);
 
-        List<Customer> found = customerRepository.findByName("Customer name");
+        List<CustomerWithOrders> found = customerRepository.findDetailsByName("Customer name");
         assertEquals(found.size(), 0);
-        List<Customer> found2 = customerRepository.findByName("Customer name 2");
+        List<CustomerWithOrders> found2 = customerRepository.findDetailsByName("Customer name 2");
         assertEquals(found2.size(), 1);
         assertThat(found2.get(0).getName()).isEqualTo(updatedCustomer.getName());
         assertThat(found2.get(0).getPhone()).isEqualTo(updatedCustomer.getPhone());
@@ -89,7 +90,7 @@ public class CustomerRepositoryTest {
 
         customerRepository.deleteById(customer.getId());
 
-        List<Customer> found = customerRepository.findByName("Customer name");
+        List<CustomerWithOrders> found = customerRepository.findDetailsByName("Customer name");
         assertEquals(found.size(), 0);
         Optional<Customer> found2 = customerRepository.findById(customer.getId());
         assertFalse(found2.isPresent());
@@ -103,35 +104,50 @@ public class CustomerRepositoryTest {
 
         try {
             customerRepository.save(customer);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         customer = new Customer(null, "+7-111-111-11-11");
 
         try {
             customerRepository.save(customer);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         customer = new Customer("Customer name", "");
 
         try {
             customerRepository.save(customer);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         customer = new Customer("Customer name", null);
 
         try {
             customerRepository.save(customer);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         customer = new Customer("Customer name", "+7-111-1t1-11-11");
 
         try {
             customerRepository.save(customer);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
     }
 }
@@ -1,8 +1,13 @@
 package com.dmitriy.bookservice.repository;
 
+import com.dmitriy.bookservice.model.Book;
 import com.dmitriy.bookservice.model.Customer;
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.OrderView;
+import com.dmitriy.bookservice.projection.OrderWithBooks;
 import com.google.common.collect.Lists;
+import org.hibernate.Hibernate;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +17,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.validation.ConstraintViolationException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
@@ -53,12 +59,64 @@ public class OrderRepositoryTest {
         assertThat(found2.get(0).getCompleted()).isEqualTo(order.getCompleted());
         assertThat(found2.get(0).getCustomer()).isEqualTo(order.getCustomer());
 
-        List<Order> found3 = orderRepository.findByCustomerId(customer.getId());
+        List<OrderWithBooks> found3 = orderRepository.findDetailsByCustomerIds(Collections.singleton(customer.getId()));
         assertEquals(found3.size(), 1);
+        assertThat(found3.get(0).getId()).isEqualTo(order.getId());
         assertThat(found3.get(0).getCompleteDate()).isEqualTo(order.getCompleteDate());
-        assertThat(found3.get(0).getCreationDate()).isEqualTo(order.getCreationDate());
         assertThat(found3.get(0).getCompleted()).isEqualTo(order.getCompleted());
-        assertThat(found3.get(0).getCustomer()).isEqualTo(order.getCustomer());
+        assertThat(found3.get(0).getOwnerId()).isEqualTo(customer.getId());
+    }
+
+    @Test
+    public void getOrdersWithBooks() {
+        Customer customer = entityManager.persist(new Customer("Customer name", "+7-111-111-11-11"));
+        Book book1 = entityManager.persist(new Book("Book name 1", 2018, "Book annotation"));
+        Book book2 = entityManager.persist(new Book("Book name 2", 2018, "Book annotation"));
+        Order order = new Order(customer, new Date());
+        order.getBooks().add(book1);
+        order.getBooks().add(book2);
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BookView> found = orderRepository.findBooksByOrderIds(Collections.singleton(order.getId()));
+        assertEquals(found.size(), 2);
+        assertThat(found.get(0).getId()).isEqualTo(book1.getId());
+        assertThat(found.get(1).getId()).isEqualTo(book2.getId());
+
+        Optional<Order> found2 = orderRepository.findById(order.getId());
+        assertTrue(found2.isPresent());
+        // Write paths load the order without its books
+        assertFalse(Hibernate.isInitialized(found2.get().getBooks()));
+        assertThat(found2.get().getCustomer().getName()).isEqualTo(customer.getName());
+    }
+
+    @Test
+    public void getOrderViews() {
+        Customer customer = entityManager.persist(new Customer("Customer name", "+7-111-111-11-11"));
+        Book book = entityManager.persist(new Book("Book name", 2018, "Book annotation"));
+        Order order = new Order(customer, new Date());
+        order.getBooks().add(book);
+        entityManager.persist(order);
+        entityManager.flush();
+
+        List<OrderWithBooks> details = orderRepository.findDetailsByIds(Collections.singleton(order.getId()));
+        assertEquals(details.size(), 1);
+        assertThat(details.get(0).getCustomer().getName()).isEqualTo(customer.getName());
+        assertThat(details.get(0).getCompleted()).isFalse();
+
+        List<OrderWithBooks> byCustomer = orderRepository.findDetailsByCustomerIds(Collections.singleton(customer.getId()));
+        assertEquals(byCustomer.size(), 1);
+        assertThat(byCustomer.get(0).getOwnerId()).isEqualTo(customer.getId());
+        assertNull(byCustomer.get(0).getCustomer());
+
+        List<BookView> books = orderRepository.findBooksByOrderIds(Collections.singleton(order.getId()));
+        assertEquals(books.size(), 1);
+        assertThat(books.get(0).getOwnerId()).isEqualTo(order.getId());
+
+        List<OrderView> views = orderRepository.findViews();
+        assertEquals(views.size(), 1);
+        assertThat(views.get(0).getCustomer().getPhone()).isEqualTo(customer.getPhone());
     }
 
     @Test
@@ -137,22 +195,31 @@ public class OrderRepositoryTest {
 
         try {
             orderRepository.save(order);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         order = new Order(customer, date);
 
         try {
             orderRepository.save(order);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
 
         order = new Order(customer, new Date());
         order.setCompleteDate(date);
 
         try {
             orderRepository.save(order);
+            entityManager.flush();
             fail("Validation failed");
-        } catch (ConstraintViolationException ex) {}
+        } catch (ConstraintViolationException ex) {
+            entityManager.clear();
+        }
     }
 }
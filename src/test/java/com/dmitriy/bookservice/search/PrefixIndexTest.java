@@ -0,0 +1,56 @@
+package com.dmitriy.bookservice.search;
+
+import com.dmitriy.bookservice.projection.NameSuggestion;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @Before
+    public void setUp() {
+        index = new PrefixIndex();
+        index.replaceAll(Arrays.asList(
+                new NameSuggestion(1, "The Art of Computer Programming"),
+                new NameSuggestion(2, "Concrete Mathematics"),
+                new NameSuggestion(3, "Computer  Networks")));
+    }
+
+    private List<Integer> suggest(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream().map(NameSuggestion::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void matchWordPrefixes() {
+        assertThat(suggest("comp", 10)).containsExactly(3, 1);
+        assertThat(suggest("COMPUTER N", 10)).containsExactly(3);
+        assertThat(suggest("art of c", 10)).containsExactly(1);
+        assertThat(suggest("rt", 10)).isEmpty();
+        assertThat(suggest("co", 2)).hasSize(2);
+    }
+
+    @Test
+    public void putAndRemove() {
+        index.put(2, "Computational Complexity");
+        assertThat(suggest("conc", 10)).isEmpty();
+        assertThat(suggest("comp", 10)).containsExactly(2, 3, 1);
+
+        index.remove(1);
+        assertThat(suggest("comp", 10)).containsExactly(2, 3);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void replaceAll() {
+        index.replaceAll(Arrays.asList(new NameSuggestion(4, "Compilers")));
+        assertThat(suggest("co", 10)).containsExactly(4);
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
@@ -1,7 +1,12 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
 import com.dmitriy.bookservice.model.Author;
+import com.dmitriy.bookservice.projection.AuthorView;
+import com.dmitriy.bookservice.projection.AuthorWithBooks;
 import com.dmitriy.bookservice.repository.AuthorRepository;
+import com.dmitriy.bookservice.search.NameSuggestions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
@@ -43,6 +48,11 @@ public class AuthorServiceTest {
             return mapperWithoutAuthorsRef;
         }
 
+        @Bean
+        public JsonCache jsonCache() {
+            return new JsonCache();
+        }
+
         @Bean
         public AuthorService authorService() {
             return new AuthorServiceImpl();
@@ -55,15 +65,31 @@ public class AuthorServiceTest {
     @MockBean
     private AuthorRepository authorRepository;
 
+    @MockBean
+    private BulkWriter bulkWriter;
+
+    @MockBean
+    private NameSuggestions nameSuggestions;
+
+    @MockBean
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @MockBean
+    private TableRevisions tableRevisions;
+
+    @MockBean
+    private VersionedUpdates versionedUpdates;
+
     @Before
     public void setUp() {
-        Author author = new Author("Author name", 1980);
-        author.setId(1);
-        List<Author> list = Arrays.asList(author);
+        AuthorWithBooks author = new AuthorWithBooks(1, "Author name", 1980);
+        List<AuthorView> list = Arrays.asList(new AuthorView(1, "Author name", 1980));
 
-        Mockito.when(authorRepository.findByFullName(author.getFullName())).thenReturn(list);
-        Mockito.when(authorRepository.findById(author.getId())).thenReturn(Optional.of(author));
-        Mockito.when(authorRepository.findAll()).thenReturn(list);
+        Mockito.when(authorRepository.findDetailsByFullName(author.getFullName())).thenReturn(Arrays.asList(author));
+        Author entity = new Author("Author name", 1980);
+        entity.setId(1);
+        Mockito.when(authorRepository.findById(entity.getId())).thenReturn(Optional.of(entity));
+        Mockito.when(authorRepository.findViews()).thenReturn(list);
     }
 
     @Test
@@ -1,7 +1,13 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
 import com.dmitriy.bookservice.model.Book;
+import com.dmitriy.bookservice.projection.BookView;
+import com.dmitriy.bookservice.projection.BookWithAuthors;
 import com.dmitriy.bookservice.repository.BookRepository;
+import com.dmitriy.bookservice.search.BookSearchEngine;
+import com.dmitriy.bookservice.search.NameSuggestions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
@@ -43,6 +49,11 @@ public class BookServiceTest {
             return mapperWithoutAuthorsRef;
         }
 
+        @Bean
+        public JsonCache jsonCache() {
+            return new JsonCache();
+        }
+
         @Bean
         public BookService bookService() {
             return new BookServiceImpl();
@@ -55,15 +66,37 @@ public class BookServiceTest {
     @MockBean
     private BookRepository bookRepository;
 
+    @MockBean
+    private BulkWriter bulkWriter;
+
+    @MockBean
+    private OrderRollups orderRollups;
+
+    @MockBean
+    private BookSearchEngine bookSearchEngine;
+
+    @MockBean
+    private NameSuggestions nameSuggestions;
+
+    @MockBean
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @MockBean
+    private TableRevisions tableRevisions;
+
+    @MockBean
+    private VersionedUpdates versionedUpdates;
+
     @Before
     public void setUp() {
-        Book book = new Book("Book name", 2018, "Book annotation");
-        book.setId(1);
-        List<Book> list = Arrays.asList(book);
+        BookWithAuthors book = new BookWithAuthors(1, "Book name", 2018, "Book annotation");
+        List<BookView> list = Arrays.asList(new BookView(1, "Book name", 2018, "Book annotation"));
 
-        Mockito.when(bookRepository.findByName(book.getName())).thenReturn(list);
-        Mockito.when(bookRepository.findById(book.getId())).thenReturn(Optional.of(book));
-        Mockito.when(bookRepository.findAll()).thenReturn(list);
+        Mockito.when(bookRepository.findDetailsByName(book.getName())).thenReturn(Arrays.asList(book));
+        Book entity = new Book("Book name", 2018, "Book annotation");
+        entity.setId(1);
+        Mockito.when(bookRepository.findById(entity.getId())).thenReturn(Optional.of(entity));
+        Mockito.when(bookRepository.findViews()).thenReturn(list);
     }
 
     @Test
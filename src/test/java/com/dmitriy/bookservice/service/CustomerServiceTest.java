@@ -1,7 +1,14 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
+import com.dmitriy.bookservice.cache.ReportCache;
 import com.dmitriy.bookservice.model.Customer;
+import com.dmitriy.bookservice.projection.CustomerView;
+import com.dmitriy.bookservice.projection.CustomerWithOrders;
 import com.dmitriy.bookservice.repository.CustomerRepository;
+import com.dmitriy.bookservice.repository.OrderRepository;
+import com.dmitriy.bookservice.search.CustomerSearchEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
@@ -43,6 +50,11 @@ public class CustomerServiceTest {
             return mapperWithoutAuthorsAndCustomerRef;
         }
 
+        @Bean
+        public JsonCache jsonCache() {
+            return new JsonCache();
+        }
+
         @Bean
         public CustomerService customerService() {
             return new CustomerServiceImpl();
@@ -55,15 +67,37 @@ public class CustomerServiceTest {
     @MockBean
     private CustomerRepository customerRepository;
 
+    @MockBean
+    private BulkWriter bulkWriter;
+
+    @MockBean
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @MockBean
+    private ReportCache reportCache;
+
+    @MockBean
+    private CustomerSearchEngine customerSearchEngine;
+
+    @MockBean
+    private TableRevisions tableRevisions;
+
+    @MockBean
+    private VersionedUpdates versionedUpdates;
+
     @Before
     public void setUp() {
-        Customer customer = new Customer("Customer name", "+7-111-111-11-11");
-        customer.setId(1);
-        List<Customer> list = Arrays.asList(customer);
+        CustomerWithOrders customer = new CustomerWithOrders(1, "Customer name", "+7-111-111-11-11");
+        List<CustomerView> list = Arrays.asList(new CustomerView(1, "Customer name", "+7-111-111-11-11"));
 
-        Mockito.when(customerRepository.findByName(customer.getName())).thenReturn(list);
-        Mockito.when(customerRepository.findById(customer.getId())).thenReturn(Optional.of(customer));
-        Mockito.when(customerRepository.findAll()).thenReturn(list);
+        Mockito.when(customerRepository.findDetailsByName(customer.getName())).thenReturn(Arrays.asList(customer));
+        Customer entity = new Customer("Customer name", "+7-111-111-11-11");
+        entity.setId(1);
+        Mockito.when(customerRepository.findById(entity.getId())).thenReturn(Optional.of(entity));
+        Mockito.when(customerRepository.findViews()).thenReturn(list);
     }
 
     @Test
@@ -1,7 +1,10 @@
 package com.dmitriy.bookservice.service;
 
+import com.dmitriy.bookservice.cache.EntityCacheEvictor;
+import com.dmitriy.bookservice.cache.JsonCache;
 import com.dmitriy.bookservice.model.Customer;
 import com.dmitriy.bookservice.model.Order;
+import com.dmitriy.bookservice.projection.OrderView;
 import com.dmitriy.bookservice.repository.OrderRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
@@ -16,6 +19,8 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -53,6 +58,11 @@ public class OrderServiceTest {
             return mapperWithoutAuthorsAndCustomerRef;
         }
 
+        @Bean
+        public JsonCache jsonCache() {
+            return new JsonCache();
+        }
+
         @Bean
         public OrderService orderService() {
             return new OrderServiceImpl();
@@ -65,15 +75,33 @@ public class OrderServiceTest {
     @MockBean
     private OrderRepository orderRepository;
 
+    @MockBean
+    private BulkWriter bulkWriter;
+
+    @MockBean
+    private OrderRollups orderRollups;
+
+    @MockBean
+    private TableRevisions tableRevisions;
+
+    @MockBean
+    private VersionedUpdates versionedUpdates;
+
+    @MockBean
+    private EntityCacheEvictor entityCacheEvictor;
+
+    @MockBean
+    private OrderCompletions orderCompletions;
+
     @Before
     public void setUp() {
-        Customer customer = new Customer("Customer name", "+7-111-111-11-11");
-        Order order = new Order(customer, new Date());
+        Date date = Date.from(LocalDate.of(2020, 5, 13).atStartOfDay(ZoneOffset.UTC).toInstant());
+        Order order = new Order(new Customer("Customer name", "+7-111-111-11-11"), date);
         order.setId(1);
-        List<Order> list = Arrays.asList(order);
+        List<OrderView> list = Arrays.asList(new OrderView(1, 0, "Customer name", "+7-111-111-11-11", date, null, false));
 
         Mockito.when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
-        Mockito.when(orderRepository.findAll()).thenReturn(list);
+        Mockito.when(orderRepository.findViews()).thenReturn(list);
     }
 
     @Test
@@ -0,0 +1,110 @@
+package com.dmitriy.bookservice.service;
+
+import com.dmitriy.bookservice.cache.ReportCache;
+import com.dmitriy.bookservice.model.ReportJob;
+import com.dmitriy.bookservice.projection.OrderReportRow;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(SpringRunner.class)
+public class ReportJobServiceTest {
+
+    @TestConfiguration
+    static class ReportJobServiceImplTestContextConfiguration {
+
+        @Bean
+        public ReportCache reportCache() {
+            return new ReportCache();
+        }
+
+        @Bean
+        public ReportJobService reportJobService() {
+            return new ReportJobServiceImpl();
+        }
+    }
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @MockBean
+    private CustomerService customerService;
+
+    private final SimpleDateFormat format = new SimpleDateFormat("dd.MM.yyyy");
+
+    @Before
+    public void setUp() {
+        reportCache.invalidateAll();
+    }
+
+    private ReportJob await(ReportJob job) throws InterruptedException {
+        for (int i = 0; i < 500 && (job.getStatus() == ReportJob.Status.QUEUED || job.getStatus() == ReportJob.Status.RUNNING); i++)
+            Thread.sleep(10);
+        return job;
+    }
+
+    @Test
+    public void submitAndInvalidate() throws Exception {
+        Date start = format.parse("01.05.2020");
+        Date end = format.parse("31.05.2020");
+        List<OrderReportRow> rows = Collections.singletonList(new OrderReportRow("Customer name", "+7-111-111-11-11", 3, null));
+        Mockito.when(customerService.reportOrders(any(), any(), any())).thenReturn(rows);
+
+        ReportJob job = await(reportJobService.submit(start, end, null));
+        assertThat(job.getStatus()).isEqualTo(ReportJob.Status.DONE);
+        assertThat(reportJobService.findById(job.getId())).isSameAs(job);
+        assertThat(reportJobService.findResultById(job.getId())).isSameAs(rows);
+
+        // Same parameters share the cached job
+        assertThat(reportJobService.submit(format.parse("01.05.2020"), end, null)).isSameAs(job);
+        assertThat(await(reportJobService.submit(start, end, true))).isNotSameAs(job);
+        verify(customerService, times(2)).reportOrders(any(), any(), any());
+
+        reportCache.invalidate(format.parse("01.06.2020"));
+        assertThat(reportJobService.submit(start, end, null)).isSameAs(job);
+
+        reportCache.invalidate(format.parse("31.05.2020"));
+        ReportJob next = await(reportJobService.submit(start, end, null));
+        assertThat(next).isNotSameAs(job);
+        assertThat(next.getStatus()).isEqualTo(ReportJob.Status.DONE);
+
+        assertThatThrownBy(() -> reportJobService.findById("unknown"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Report job (id = unknown) not found");
+    }
+
+    @Test
+    public void failedJob() throws Exception {
+        Date date = format.parse("13.05.2020");
+        Mockito.when(customerService.reportOrders(any(), any(), any())).thenThrow(new IllegalStateException("Database is down"));
+
+        ReportJob job = await(reportJobService.submit(date, date, false));
+        assertThat(job.getStatus()).isEqualTo(ReportJob.Status.FAILED);
+        assertThatThrownBy(() -> reportJobService.findResultById(job.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Report job (id = " + job.getId() + ") failed: Database is down");
+
+        // Failed results are not cached
+        assertThat(await(reportJobService.submit(date, date, false))).isNotSameAs(job);
+    }
+}